@@ -0,0 +1,79 @@
+package com.openthinks.others.webpages.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.libs.utilities.logger.PLLevel;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.bench.Fixtures;
+import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+
+/**
+ * The cost of <code>HtmlCssResourceAgent.deepIntoRef</code>
+ * in steady state: the references were kept by the first invocation, so the later invocations
+ * measure tokenizing, resolving and the index lookup
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlCssResourceAgentBenchmark {
+
+  @Param({"1", "64"})
+  public int copies;
+
+  private WebClient webClient;
+  private HtmlPage page;
+  private File keepDir;
+  private HtmlPageTransfer pageTransfer;
+  private HtmlCssResourceAgent agent;
+  private String css;
+
+  @Setup
+  public void setup() throws IOException {
+    ProcessLogger.currentLevel = PLLevel.ERROR;
+    webClient = Fixtures.webClient(Fixtures.connection());
+    page = webClient.getPage(Fixtures.CHAPTER_URL);
+    keepDir = Fixtures.tempDir("css-bench");
+    pageTransfer = HtmlPageTransfer.create(page, keepDir);
+    final HtmlResourceKeeper keeper =
+        new HtmlResourceKeeper(pageTransfer, page.getDocumentElement(), pageTransfer.getCssKeepDir());
+    agent = new HtmlCssResourceAgent(keeper);
+    keeper.initial(Fixtures.url(Fixtures.CSS_URL), () -> agent);
+    css = Fixtures.repeat(Fixtures.text("book.css"), copies);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pageTransfer.getContext().close();
+    webClient.close();
+    Fixtures.delete(keepDir);
+  }
+
+  @Benchmark
+  public String deepIntoRef() throws IOException {
+    return agent.deepIntoRef(css, page.getDocumentElement());
+  }
+}
@@ -0,0 +1,140 @@
+package com.openthinks.others.webpages.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.libs.utilities.logger.PLLevel;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.bench.Fixtures;
+import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+import com.openthinks.others.webpages.util.HtmlPageSerializer;
+
+/**
+ * The DOM work of {@link HtmlPageResourceAgent} and the serialization of page; the rewriting
+ * benchmarks get a freshly loaded page for every invocation, since they change the page
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlPageResourceAgentBenchmark {
+
+  @State(Scope.Thread)
+  public static class Site {
+    WebClient webClient;
+    File keepDir;
+
+    @Setup
+    public void setup() {
+      ProcessLogger.currentLevel = PLLevel.ERROR;
+      webClient = Fixtures.webClient(Fixtures.connection());
+      keepDir = Fixtures.tempDir("page-bench");
+    }
+
+    @TearDown
+    public void tearDown() {
+      webClient.close();
+      Fixtures.delete(keepDir);
+    }
+
+    HtmlPageResourceAgent load(HtmlPage page) {
+      HtmlPageTransfer pageTransfer = HtmlPageTransfer.create(page, keepDir);
+      final HtmlResourceKeeper keeper = new HtmlResourceKeeper(pageTransfer, page, keepDir);
+      final HtmlPageResourceAgent agent = new HtmlPageResourceAgent(keeper);
+      keeper.initial(page.getUrl(), () -> agent);
+      return agent;
+    }
+  }
+
+  /**
+   * the page loaded again before each invocation
+   */
+  @State(Scope.Thread)
+  public static class FreshPage {
+    HtmlPage page;
+    HtmlPageResourceAgent agent;
+
+    @Setup(Level.Invocation)
+    public void setup(Site site) throws IOException {
+      page = site.webClient.getPage(Fixtures.CHAPTER_URL);
+      agent = site.load(page);
+    }
+  }
+
+  /**
+   * the page loaded once
+   */
+  @State(Scope.Thread)
+  public static class LoadedPage {
+    HtmlPage page;
+
+    @Setup
+    public void setup(Site site) throws IOException {
+      page = site.webClient.getPage(Fixtures.CHAPTER_URL);
+    }
+  }
+
+  @Benchmark
+  public HtmlPage processAnchors(FreshPage fresh) {
+    fresh.agent.processAnchors(fresh.page);
+    return fresh.page;
+  }
+
+  @Benchmark
+  public HtmlPage processOthers(FreshPage fresh) {
+    fresh.agent.processOthers(fresh.page);
+    return fresh.page;
+  }
+
+  @Benchmark
+  public String asXml(LoadedPage loaded) {
+    return loaded.page.asXml();
+  }
+
+  /**
+   * the streaming serialization which the agent writes to file, into a writer which only counts
+   */
+  @Benchmark
+  public long serialize(LoadedPage loaded) throws IOException {
+    CountingWriter writer = new CountingWriter();
+    HtmlPageSerializer.write(loaded.page, writer);
+    return writer.count;
+  }
+
+  static final class CountingWriter extends Writer {
+    long count = 0;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      count += len;
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
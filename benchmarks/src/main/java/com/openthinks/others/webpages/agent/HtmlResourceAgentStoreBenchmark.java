@@ -0,0 +1,104 @@
+package com.openthinks.others.webpages.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.libs.utilities.logger.PLLevel;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.bench.Fixtures;
+import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+
+/**
+ * Persist the text and binary resources by {@link HtmlResourceAgent}, the same file is overwritten by
+ * every invocation
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlResourceAgentStoreBenchmark {
+
+  @Param({"16384", "1048576"})
+  public int size;
+
+  private WebClient webClient;
+  private File keepDir;
+  private File source;
+  private HtmlTextResourceAgent textAgent;
+  private HtmlBinaryResourceAgent binaryAgent;
+  private String text;
+  private byte[] content;
+
+  @Setup
+  public void setup() throws IOException {
+    ProcessLogger.currentLevel = PLLevel.ERROR;
+    webClient = Fixtures.webClient(Fixtures.connection());
+    HtmlPage page = webClient.getPage(Fixtures.CHAPTER_URL);
+    keepDir = Fixtures.tempDir("store-bench");
+    HtmlPageTransfer pageTransfer = HtmlPageTransfer.create(page, keepDir);
+
+    final HtmlResourceKeeper textKeeper = new HtmlResourceKeeper(pageTransfer, page, keepDir);
+    textAgent = new HtmlTextResourceAgent(textKeeper);
+    textKeeper.initial(Fixtures.url(Fixtures.BOOK_URL + "book.txt"), () -> textAgent);
+    final HtmlResourceKeeper binaryKeeper = new HtmlResourceKeeper(pageTransfer, page, keepDir);
+    binaryAgent = new HtmlBinaryResourceAgent(binaryKeeper);
+    binaryKeeper.initial(Fixtures.url(Fixtures.BOOK_URL + "book.png"), () -> binaryAgent);
+
+    String chapter = Fixtures.text("chapter.html");
+    text = Fixtures.repeat(chapter, size / chapter.length() + 1).substring(0, size);
+    content = Fixtures.binary(size);
+    source = new File(keepDir, "source.bin");
+    Files.write(source.toPath(), content);
+  }
+
+  @TearDown
+  public void tearDown() {
+    webClient.close();
+    Fixtures.delete(keepDir);
+  }
+
+  @Benchmark
+  public void storeTextResource() {
+    textAgent.storeTextResource(text);
+  }
+
+  @Benchmark
+  public void storeBinaryResource() {
+    binaryAgent.storeBinaryResource(new ByteArrayInputStream(content));
+  }
+
+  /**
+   * the file source is copied by channel transfer
+   * 
+   * @throws IOException
+   */
+  @Benchmark
+  public void storeBinaryResourceOfFile() throws IOException {
+    binaryAgent.storeBinaryResource(new FileInputStream(source));
+  }
+}
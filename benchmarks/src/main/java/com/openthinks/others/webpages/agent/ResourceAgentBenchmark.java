@@ -0,0 +1,60 @@
+package com.openthinks.others.webpages.agent;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.openthinks.others.webpages.bench.Fixtures;
+
+/**
+ * The resource name of {@link ResourceAgent#resolve(URL)} and
+ * {@link ResourceAgent#resolveOfPoundSign(URL)}, which are called for every kept resource
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceAgentBenchmark {
+  private URL[] urls;
+  private ResourceAgent agent;
+
+  @Setup
+  public void setup() {
+    urls = new URL[] {Fixtures.url(Fixtures.CHAPTER_URL), Fixtures.url(Fixtures.CSS_URL),
+        Fixtures.url(Fixtures.BOOK_URL + "images/figure-1-1.png"),
+        Fixtures.url(Fixtures.BOOK_URL + "images/arrow.svg#left"),
+        Fixtures.url(Fixtures.BOOK_URL + "fonts/source-serif.eot?#iefix"),
+        Fixtures.url("http://bench.local/static/images/footer%20wide.jpg?v=1.2.3&size=large")};
+    agent = new HtmlTextResourceAgent(null);
+  }
+
+  @Benchmark
+  public void resolve(Blackhole blackhole) {
+    for (URL url : urls) {
+      blackhole.consume(agent.resolve(url));
+    }
+  }
+
+  @Benchmark
+  public void resolveOfPoundSign(Blackhole blackhole) {
+    for (URL url : urls) {
+      blackhole.consume(agent.resolveOfPoundSign(url));
+    }
+  }
+}
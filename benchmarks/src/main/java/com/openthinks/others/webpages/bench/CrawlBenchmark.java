@@ -0,0 +1,214 @@
+package com.openthinks.others.webpages.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.openthinks.libs.utilities.logger.PLLevel;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+
+/**
+ * The end to end crawl benchmark, which downloads a {@link SyntheticBook} from a local
+ * {@link SyntheticBookServer} by {@link TimedWebPagesLaunch}, and reports pages/sec, bytes/sec, peak
+ * heap and the time of each stage
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar com.openthinks.others.webpages.bench.CrawlBenchmark \
+ *   mode=both rounds=3 pages=200 images=4 image-size=32768 videos=1 latency=5 \
+ *   catalog-worker-count=4 resource-worker-count=8 resource-per-host-limit=8 chain-prefetch-depth=2
+ * </pre>
+ * 
+ * <code>mode</code> is one of <code>catalog</code>, <code>chain</code> or <code>both</code>; the
+ * other options are the book shape of {@link SyntheticBook} or the configuration items of
+ * {@link WebPagesConfigure}. With <code>incremental=true</code> all rounds of one mode download
+ * into the same directory, so the rounds after the first measure the incremental re-crawl
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CrawlBenchmark {
+  private static final String[] CONFIG_OPTIONS = {WebPagesConfigure.CATALOG_WORKER_COUNT,
+      WebPagesConfigure.RESOURCE_WORKER_COUNT, WebPagesConfigure.RESOURCE_PER_HOST_LIMIT,
+      WebPagesConfigure.NORMALIZE_IMAGES, WebPagesConfigure.CHAIN_PREFETCH_DEPTH,
+      WebPagesConfigure.PAGE_JAVASCRIPT, WebPagesConfigure.PAGE_CSS,
+      WebPagesConfigure.PAGE_PARSER_ONLY, WebPagesConfigure.RESPONSE_CACHE_SIZE,
+      WebPagesConfigure.RESPONSE_CACHE_SPILL_DIR, WebPagesConfigure.RESPONSE_CACHE_SPILL_SIZE,
+      WebPagesConfigure.INCREMENTAL, WebPagesConfigure.CONTENT_STORE,
+      WebPagesConfigure.RESOURCE_NAMING, WebPagesConfigure.ASYNC_TRANSPORT};
+
+  private final SyntheticBook book;
+  private final Map<String, String> options;
+  private final Map<String, File> keptDirs = new HashMap<>();
+
+  public CrawlBenchmark(SyntheticBook book, Map<String, String> options) {
+    this.book = book;
+    this.options = options;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      int split = arg.indexOf('=');
+      if (split <= 0) {
+        throw new IllegalArgumentException("The option should be name=value: " + arg);
+      }
+      options.put(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+    }
+    SyntheticBook book = SyntheticBook.of(options);
+    String mode = options.getOrDefault("mode", "both");
+    int rounds = SyntheticBook.intOf(options, "rounds", 1);
+    CrawlBenchmark benchmark = new CrawlBenchmark(book, options);
+    System.out.println("# Book: " + book);
+    System.out.println("# Options: " + options);
+    try (SyntheticBookServer server = new SyntheticBookServer(book).start()) {
+      for (int round = 1; round <= rounds; round++) {
+        if ("catalog".equals(mode) || "both".equals(mode)) {
+          benchmark.run(server, "catalog", round);
+        }
+        if ("chain".equals(mode) || "both".equals(mode)) {
+          benchmark.run(server, "chain", round);
+        }
+      }
+    } finally {
+      benchmark.cleanUp();
+    }
+  }
+
+  /**
+   * delete the directories kept across rounds
+   */
+  public void cleanUp() {
+    keptDirs.values().forEach(Fixtures::delete);
+    keptDirs.clear();
+  }
+
+  /**
+   * download the book once into a new temporary directory, or into the directory of previous round
+   * in incremental mode
+   * 
+   * @param server {@link SyntheticBookServer}
+   * @param mode <code>catalog</code> or <code>chain</code>
+   * @param round the round number
+   * @throws Exception
+   */
+  public void run(SyntheticBookServer server, String mode, int round) throws Exception {
+    boolean incremental = Boolean.parseBoolean(options.get(WebPagesConfigure.INCREMENTAL));
+    File saveDir = incremental ? keptDirs.get(mode) : null;
+    if (saveDir == null) {
+      saveDir = Files.createTempDirectory("crawl-bench").toFile();
+      if (incremental) {
+        keptDirs.put(mode, saveDir);
+      }
+    }
+    StageTimer timer = new StageTimer();
+    WebPagesConfigure config = configure(server, mode, saveDir);
+    TimedWebPagesLaunch launch = new TimedWebPagesLaunch(config, timer);
+    try {
+      server.resetCounters();
+      System.gc();
+      resetPeakHeap();
+      long start = System.nanoTime();
+      launch.start();
+      double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+      long peakHeap = peakHeap();
+      long storedBytes = sizeOf(saveDir.toPath());
+
+      System.out.printf("%n# %s round %d%n", mode, round);
+      System.out.printf("  wall time        %10.3f s%n", seconds);
+      System.out.printf("  pages            %10d (%.2f pages/s)%n", launch.getTransferredPages(),
+          launch.getTransferredPages() / seconds);
+      System.out.printf("  requests served  %10d%n", server.getServedRequests());
+      System.out.printf("  bytes served     %10d (%.2f KB/s)%n", server.getServedBytes(),
+          server.getServedBytes() / 1024.0 / seconds);
+      System.out.printf("  bytes stored     %10d (%.2f KB/s)%n", storedBytes,
+          storedBytes / 1024.0 / seconds);
+      System.out.printf("  peak heap        %10.2f MB%n", peakHeap / 1024.0 / 1024.0);
+      for (Map.Entry<String, Double> stage : timer.snapshot().entrySet()) {
+        long count = timer.getCount(stage.getKey());
+        System.out.printf("  %-26s %10.1f ms in %6d (avg %.2f ms)%n", stage.getKey(),
+            stage.getValue(), count, stage.getValue() / count);
+      }
+    } finally {
+      if (!incremental) {
+        Fixtures.delete(saveDir);
+      }
+    }
+  }
+
+  protected WebPagesConfigure configure(SyntheticBookServer server, String mode, File saveDir) {
+    WebPagesConfigure config = WebPagesConfigure.create();
+    config.setKeepDir(saveDir.getAbsolutePath());
+    config.setBookName("synthetic-" + mode);
+    config.setLoggerLevel(PLLevel.valueOf(options.getOrDefault("logger-level", "WARN")));
+    config.setNeedLogin(book.isLogin());
+    if (book.isLogin()) {
+      config.setLoginPageUrl(server.getLoginUrl());
+      config.setLoginFormSelector("#login");
+      config.setLoginAuthInputName("username");
+      config.setLoginAuthInputValue("reader");
+      config.setLoginAuthPassInputName("password");
+      config.setLoginAuthPassInputValue("secret");
+      config.setLoginSubmitBtnName("signin");
+    }
+    if ("catalog".equals(mode)) {
+      config.setCatalogPageUrl(server.getCatalogUrl());
+      config.setPageLinkOfCatalogSelector("a.chapter");
+    } else {
+      config.setStartChainPageUrl(server.getFirstChapterUrl());
+      config.setNextChainPageAnchorSelector("a.next");
+    }
+    for (String name : CONFIG_OPTIONS) {
+      if (options.containsKey(name)) {
+        config.setProperty(name, options.get(name));
+      }
+    }
+    return config;
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * the bytes of files in the directory, the hard links of one file are counted once
+   */
+  private static long sizeOf(Path dir) throws IOException {
+    Set<Object> counted = new HashSet<>();
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).mapToLong((file) -> {
+        try {
+          BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+          Object key = attrs.fileKey();
+          return key == null || counted.add(key) ? attrs.size() : 0;
+        } catch (IOException e) {
+          return 0;
+        }
+      }).sum();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.openthinks.others.webpages.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.WebClient;
+
+/**
+ * The canned pages and stylesheets of benchmarks, served by an in-process {@link MockWebConnection}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class Fixtures {
+  public static final String BOOK_URL = "http://bench.local/library/view/book/";
+  public static final String CHAPTER_URL = BOOK_URL + "chapter-1.html";
+  public static final String CSS_URL = BOOK_URL + "css/book.css";
+
+  private Fixtures() {}
+
+  /**
+   * read the fixture from class path
+   * 
+   * @param name the file name under <code>fixtures/</code>
+   * @return String
+   */
+  public static String text(String name) {
+    try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+      if (in == null) {
+        throw new IllegalArgumentException("Missing fixture " + name);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        out.write(buffer, 0, len);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param text String
+   * @param times the copies of text
+   * @return the text repeated
+   */
+  public static String repeat(String text, int times) {
+    StringBuilder sb = new StringBuilder(text.length() * times);
+    for (int i = 0; i < times; i++) {
+      sb.append(text);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * the pseudo image content, which starts with PNG signature
+   * 
+   * @param size the length of content
+   * @return byte[]
+   */
+  public static byte[] binary(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    System.arraycopy(signature, 0, content, 0, Math.min(signature.length, size));
+    return content;
+  }
+
+  /**
+   * the stub connection serving the chapter fixture and its stylesheets, other requests get a small
+   * image
+   * 
+   * @return {@link MockWebConnection}
+   */
+  public static MockWebConnection connection() {
+    MockWebConnection connection = new MockWebConnection();
+    String css = text("book.css");
+    connection.setResponse(url(CHAPTER_URL), text("chapter.html"), "text/html",
+        StandardCharsets.UTF_8);
+    connection.setResponse(url(CSS_URL), css, "text/css", StandardCharsets.UTF_8);
+    connection.setResponse(url(BOOK_URL + "css/base.css"), "html { color: #333; }", "text/css",
+        StandardCharsets.UTF_8);
+    connection.setResponse(url(BOOK_URL + "css/typography.css"),
+        "p { line-height: 1.5; background: url(../images/rule.png); }", "text/css",
+        StandardCharsets.UTF_8);
+    connection.setResponse(url(BOOK_URL + "css/print.css"), "body { color: #000; }", "text/css",
+        StandardCharsets.UTF_8);
+    connection.setDefaultResponse(binary(4096), 200, "OK", "image/png");
+    return connection;
+  }
+
+  /**
+   * the client without script, connected to the given stub
+   * 
+   * @param connection {@link MockWebConnection}
+   * @return {@link WebClient}
+   */
+  public static WebClient webClient(MockWebConnection connection) {
+    WebClient webClient = new WebClient();
+    webClient.getOptions().setJavaScriptEnabled(false);
+    webClient.getOptions().setCssEnabled(false);
+    webClient.getOptions().setThrowExceptionOnScriptError(false);
+    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+    webClient.setWebConnection(connection);
+    return webClient;
+  }
+
+  public static URL url(String url) {
+    try {
+      return new URL(url);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static File tempDir(String prefix) {
+    try {
+      return Files.createTempDirectory(prefix).toFile();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,142 @@
+package com.openthinks.others.webpages.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+
+/**
+ * The long run of catalog download over a large {@link SyntheticBook}, which samples the live heap
+ * after a full GC every some pages, and fails when the heap keeps growing with the pages
+ *
+ * <pre>
+ * java -Xmx256m -cp target/benchmarks.jar com.openthinks.others.webpages.bench.HeapStressRunner \
+ *   pages=5000 sample-every=250 max-growth=25 catalog-worker-count=4
+ * </pre>
+ *
+ * The live heap of the first samples is the baseline, the run fails if the median of the last
+ * samples is more than <code>max-growth</code> percent over it; the other options are the same as
+ * {@link CrawlBenchmark}
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class HeapStressRunner {
+  private static final int WINDOW = 5;
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    options.put("pages", "5000");
+    options.put("paragraphs", "10");
+    options.put("images", "1");
+    options.put("image-size", "2048");
+    options.put("videos", "0");
+    options.put("login", "false");
+    for (String arg : args) {
+      int split = arg.indexOf('=');
+      if (split <= 0) {
+        throw new IllegalArgumentException("The option should be name=value: " + arg);
+      }
+      options.put(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+    }
+    SyntheticBook book = SyntheticBook.of(options);
+    int sampleEvery = SyntheticBook.intOf(options, "sample-every", 250);
+    int maxGrowth = SyntheticBook.intOf(options, "max-growth", 25);
+    System.out.println("# Book: " + book);
+    System.out.println("# Options: " + options);
+
+    List<long[]> samples;
+    File saveDir = Files.createTempDirectory("heap-stress").toFile();
+    try (SyntheticBookServer server = new SyntheticBookServer(book).start()) {
+      WebPagesConfigure config =
+          new CrawlBenchmark(book, options).configure(server, "catalog", saveDir);
+      TimedWebPagesLaunch launch = new TimedWebPagesLaunch(config, new StageTimer());
+      HeapSampler sampler = new HeapSampler(launch, sampleEvery);
+      sampler.start();
+      try {
+        launch.start();
+      } finally {
+        sampler.interrupt();
+        sampler.join();
+      }
+      samples = sampler.samples;
+      System.out.printf("%n# %d pages in %d requests%n", launch.getTransferredPages(),
+          server.getServedRequests());
+    } finally {
+      Fixtures.delete(saveDir);
+    }
+
+    System.out.printf("  %8s %12s%n", "pages", "live heap MB");
+    for (long[] sample : samples) {
+      System.out.printf("  %8d %12.2f%n", sample[0], sample[1] / 1024.0 / 1024.0);
+    }
+    if (samples.size() < WINDOW * 2 + 1) {
+      System.out.println("# Too few samples to judge the heap, use more pages or smaller sample-every");
+      return;
+    }
+    // the first sample is taken during warm up
+    long baseline = median(samples.subList(1, WINDOW + 1));
+    long last = median(samples.subList(samples.size() - WINDOW, samples.size()));
+    double growth = (last - baseline) * 100.0 / baseline;
+    System.out.printf("# Live heap %.2f MB -> %.2f MB (%+.1f%%)%n", baseline / 1024.0 / 1024.0,
+        last / 1024.0 / 1024.0, growth);
+    if (growth > maxGrowth) {
+      System.out.println("# FAILED: the live heap grows with pages");
+      System.exit(1);
+    }
+    System.out.println("# PASSED: the live heap is flat");
+  }
+
+  private static long median(List<long[]> samples) {
+    List<Long> heaps = new ArrayList<>();
+    for (long[] sample : samples) {
+      heaps.add(sample[1]);
+    }
+    Collections.sort(heaps);
+    return heaps.get(heaps.size() / 2);
+  }
+
+  /**
+   * take the live heap after a full GC each time another <code>sampleEvery</code> pages are
+   * transferred
+   */
+  private static class HeapSampler extends Thread {
+    private final TimedWebPagesLaunch launch;
+    private final int sampleEvery;
+    private final List<long[]> samples = new ArrayList<>();
+
+    HeapSampler(TimedWebPagesLaunch launch, int sampleEvery) {
+      super("heap-sampler");
+      setDaemon(true);
+      this.launch = launch;
+      this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    @Override
+    public void run() {
+      MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+      long next = sampleEvery;
+      while (!isInterrupted()) {
+        long pages = launch.getTransferredPages();
+        if (pages >= next) {
+          memory.gc();
+          samples.add(new long[] {pages, memory.getHeapMemoryUsage().getUsed()});
+          next = (pages / sampleEvery + 1) * sampleEvery;
+          continue;
+        }
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.openthinks.others.webpages.bench;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The accumulated time and count of each crawl stage, shared by all threads of one run
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class StageTimer {
+  private final ConcurrentMap<String, LongAdder> nanos = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+  /**
+   * @param stage the stage name
+   * @param startNanos the value of {@link System#nanoTime()} when the stage started
+   */
+  public void record(String stage, long startNanos) {
+    nanos.computeIfAbsent(stage, (key) -> new LongAdder()).add(System.nanoTime() - startNanos);
+    counts.computeIfAbsent(stage, (key) -> new LongAdder()).increment();
+  }
+
+  public long getCount(String stage) {
+    LongAdder count = counts.get(stage);
+    return count == null ? 0 : count.sum();
+  }
+
+  public double getMillis(String stage) {
+    LongAdder total = nanos.get(stage);
+    return total == null ? 0 : total.sum() / 1_000_000.0;
+  }
+
+  /**
+   * @return the total milliseconds of each stage, sorted by stage name
+   */
+  public Map<String, Double> snapshot() {
+    Map<String, Double> millis = new TreeMap<>();
+    for (String stage : nanos.keySet()) {
+      millis.put(stage, getMillis(stage));
+    }
+    return millis;
+  }
+}
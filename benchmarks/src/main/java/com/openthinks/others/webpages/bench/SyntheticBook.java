@@ -0,0 +1,94 @@
+package com.openthinks.others.webpages.bench;
+
+import java.util.Map;
+
+/**
+ * The shape of the book served by {@link SyntheticBookServer}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class SyntheticBook {
+  private int pages = 100;
+  private int paragraphs = 40;
+  private int images = 4;
+  private int imageSize = 32 * 1024;
+  private int videos = 0;
+  private int videoSize = 1024 * 1024;
+  private long latencyMillis = 0;
+  private boolean login = true;
+  private int maxAge = 0;
+
+  /**
+   * read the options like <code>pages=200</code> from the given map, the absent options keep their
+   * default values
+   * 
+   * @param options Map
+   * @return {@link SyntheticBook}
+   */
+  public static SyntheticBook of(Map<String, String> options) {
+    SyntheticBook book = new SyntheticBook();
+    book.pages = intOf(options, "pages", book.pages);
+    book.paragraphs = intOf(options, "paragraphs", book.paragraphs);
+    book.images = intOf(options, "images", book.images);
+    book.imageSize = intOf(options, "image-size", book.imageSize);
+    book.videos = intOf(options, "videos", book.videos);
+    book.videoSize = intOf(options, "video-size", book.videoSize);
+    book.latencyMillis = intOf(options, "latency", (int) book.latencyMillis);
+    book.maxAge = intOf(options, "max-age", book.maxAge);
+    book.login = Boolean.parseBoolean(options.getOrDefault("login", String.valueOf(book.login)));
+    return book;
+  }
+
+  static int intOf(Map<String, String> options, String name, int defaultValue) {
+    String value = options.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value.trim());
+  }
+
+  public int getPages() {
+    return pages;
+  }
+
+  public int getParagraphs() {
+    return paragraphs;
+  }
+
+  public int getImages() {
+    return images;
+  }
+
+  public int getImageSize() {
+    return imageSize;
+  }
+
+  public int getVideos() {
+    return videos;
+  }
+
+  public int getVideoSize() {
+    return videoSize;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public boolean isLogin() {
+    return login;
+  }
+
+  /**
+   * @return the seconds of <code>Cache-Control: max-age</code> of the stylesheets, scripts and
+   *         binaries, 0 means they only have <code>ETag</code>
+   */
+  public int getMaxAge() {
+    return maxAge;
+  }
+
+  @Override
+  public String toString() {
+    return "pages=" + pages + " paragraphs=" + paragraphs + " images=" + images + " image-size="
+        + imageSize + " videos=" + videos + " video-size=" + videoSize + " latency=" + latencyMillis
+        + " login=" + login + " max-age=" + maxAge;
+  }
+}
@@ -0,0 +1,252 @@
+package com.openthinks.others.webpages.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The local web site serving a synthetic book: a login form, a catalog page listing all chapters,
+ * and chapters linked one by one with "next" anchors; each chapter references the shared stylesheet
+ * and script, its own images and videos
+ * 
+ * <pre>
+ * /login.html              login form, POST /login sets the session cookie
+ * /book/catalog.html       the links of all chapters, selector <code>a.chapter</code>
+ * /book/chapter-N.html     the chapter, next chapter selector <code>a.next</code>
+ * /book/css/book.css       the stylesheet with images and fonts
+ * /book/js/reader.js       the script
+ * /book/images/*, /book/videos/*, /book/fonts/*   the binary payloads
+ * </pre>
+ * 
+ * All responses have <code>ETag</code> and answer 304 to the matched <code>If-None-Match</code>;
+ * the pages are <code>no-cache</code>, so they are revalidated on every use
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class SyntheticBookServer implements Closeable {
+  public static final String SESSION_COOKIE = "bench-session";
+  private static final String SESSION_TOKEN = "synthetic";
+  private static final Pattern CHAPTER_PATH = Pattern.compile("/book/chapter-(\\d+)\\.html");
+
+  private final SyntheticBook book;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final AtomicLong servedBytes = new AtomicLong();
+  private final AtomicLong servedRequests = new AtomicLong();
+  private final byte[] imageContent;
+  private final byte[] videoContent;
+
+  public SyntheticBookServer(SyntheticBook book) throws IOException {
+    this.book = book;
+    this.imageContent = Fixtures.binary(book.getImageSize());
+    this.videoContent = Fixtures.binary(book.getVideoSize());
+    this.server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+    this.executor = Executors.newFixedThreadPool(16, (runnable) -> {
+      Thread thread = new Thread(runnable, "synthetic-book");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server.setExecutor(executor);
+    this.server.createContext("/", this::handle);
+  }
+
+  public SyntheticBookServer start() {
+    server.start();
+    return this;
+  }
+
+  /**
+   * @return the base URL like <code>http://127.0.0.1:port</code>
+   */
+  public String getBaseUrl() {
+    InetSocketAddress address = server.getAddress();
+    return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+  }
+
+  public String getLoginUrl() {
+    return getBaseUrl() + "/login.html";
+  }
+
+  public String getCatalogUrl() {
+    return getBaseUrl() + "/book/catalog.html";
+  }
+
+  public String getFirstChapterUrl() {
+    return getBaseUrl() + "/book/chapter-1.html";
+  }
+
+  public long getServedBytes() {
+    return servedBytes.get();
+  }
+
+  public long getServedRequests() {
+    return servedRequests.get();
+  }
+
+  public void resetCounters() {
+    servedBytes.set(0);
+    servedRequests.set(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream request = exchange.getRequestBody()) {
+      while (request.read() != -1) {
+        // drain the form data
+      }
+      if (book.getLatencyMillis() > 0) {
+        Thread.sleep(book.getLatencyMillis());
+      }
+      dispatch(exchange);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exchange.sendResponseHeaders(503, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void dispatch(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    if ("/login.html".equals(path)) {
+      sendText(exchange, "text/html", loginPage());
+      return;
+    }
+    if ("/login".equals(path)) {
+      exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + SESSION_TOKEN + "; Path=/");
+      exchange.getResponseHeaders().add("Location", "/book/catalog.html");
+      exchange.sendResponseHeaders(302, -1);
+      return;
+    }
+    if (book.isLogin() && !hasSession(exchange)) {
+      exchange.getResponseHeaders().add("Location", "/login.html");
+      exchange.sendResponseHeaders(302, -1);
+      return;
+    }
+    Matcher chapter = CHAPTER_PATH.matcher(path);
+    if ("/book/catalog.html".equals(path)) {
+      sendText(exchange, "text/html", catalogPage());
+    } else if (chapter.matches() && Integer.parseInt(chapter.group(1)) <= book.getPages()) {
+      sendText(exchange, "text/html", chapterPage(Integer.parseInt(chapter.group(1))));
+    } else if ("/book/css/book.css".equals(path)) {
+      sendText(exchange, "text/css", Fixtures.text("book.css"));
+    } else if ("/book/js/reader.js".equals(path)) {
+      sendText(exchange, "application/javascript",
+          "var reader = { page: document.title, ready: true };");
+    } else if (path.startsWith("/book/images/")) {
+      send(exchange, "image/png", imageContent);
+    } else if (path.startsWith("/book/videos/")) {
+      send(exchange, "video/mp4", videoContent);
+    } else if (path.startsWith("/book/fonts/") || path.startsWith("/static/")) {
+      send(exchange, "application/octet-stream", imageContent);
+    } else {
+      exchange.sendResponseHeaders(404, -1);
+    }
+  }
+
+  private boolean hasSession(HttpExchange exchange) {
+    List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+    if (cookies == null) {
+      return false;
+    }
+    for (String cookie : cookies) {
+      if (cookie.contains(SESSION_COOKIE + "=" + SESSION_TOKEN)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String loginPage() {
+    return "<!DOCTYPE html><html><head><title>Sign in</title></head><body>"
+        + "<form id=\"login\" action=\"/login\" method=\"post\">"
+        + "<input type=\"text\" name=\"username\">"
+        + "<input type=\"password\" name=\"password\">"
+        + "<input type=\"submit\" name=\"signin\" value=\"Sign in\">" + "</form></body></html>";
+  }
+
+  private String catalogPage() {
+    StringBuilder html = new StringBuilder(
+        "<!DOCTYPE html><html><head><title>Catalog</title>"
+            + "<link rel=\"stylesheet\" type=\"text/css\" href=\"css/book.css\"></head><body><ol>");
+    for (int i = 1; i <= book.getPages(); i++) {
+      html.append("<li><a class=\"chapter\" href=\"chapter-").append(i).append(".html\">Chapter ")
+          .append(i).append("</a></li>");
+    }
+    return html.append("</ol></body></html>").toString();
+  }
+
+  private String chapterPage(int index) {
+    StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><title>Chapter ")
+        .append(index).append("</title>")
+        .append("<link rel=\"stylesheet\" type=\"text/css\" href=\"css/book.css\">")
+        .append("<script type=\"text/javascript\" src=\"js/reader.js\"></script></head><body>")
+        .append("<h1>Chapter ").append(index).append("</h1>");
+    for (int p = 0; p < book.getParagraphs(); p++) {
+      html.append("<p>Paragraph ").append(p)
+          .append(" of the synthetic chapter, see <a href=\"/book/chapter-")
+          .append(Math.max(1, index - 1)).append(".html#top\">the previous chapter</a>.</p>");
+    }
+    for (int i = 1; i <= book.getImages(); i++) {
+      html.append("<img src=\"images/chapter-").append(index).append("-figure-").append(i)
+          .append(".png\" alt=\"Figure ").append(index).append('-').append(i).append("\">");
+    }
+    for (int v = 1; v <= book.getVideos(); v++) {
+      html.append("<video controls><source src=\"videos/chapter-").append(index).append("-clip-")
+          .append(v).append(".mp4\" type=\"video/mp4\"></video>");
+    }
+    html.append("<pre>'java -jar keeper.jar'</pre>");
+    if (index < book.getPages()) {
+      html.append("<a class=\"next\" href=\"chapter-").append(index + 1).append(".html\">Next</a>");
+    }
+    return html.append("</body></html>").toString();
+  }
+
+  private void sendText(HttpExchange exchange, String contentType, String text) throws IOException {
+    send(exchange, contentType + "; charset=UTF-8", text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void send(HttpExchange exchange, String contentType, byte[] content) throws IOException {
+    String etag = "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+    exchange.getResponseHeaders().add("ETag", etag);
+    if (contentType.startsWith("text/html")) {
+      // the pages are validated only, the assets are cacheable
+      exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+    } else if (book.getMaxAge() > 0) {
+      exchange.getResponseHeaders().add("Cache-Control", "max-age=" + book.getMaxAge());
+    }
+    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+      exchange.sendResponseHeaders(304, -1);
+      servedRequests.incrementAndGet();
+      return;
+    }
+    exchange.getResponseHeaders().add("Content-Type", contentType);
+    exchange.sendResponseHeaders(200, content.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(content);
+    }
+    servedBytes.addAndGet(content.length);
+    servedRequests.incrementAndGet();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
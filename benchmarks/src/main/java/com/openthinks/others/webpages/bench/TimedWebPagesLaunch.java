@@ -0,0 +1,71 @@
+package com.openthinks.others.webpages.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.others.webpages.WebPagesLaunch;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+import com.openthinks.others.webpages.transfer.TimedHtmlPageTransfer;
+
+/**
+ * The {@link WebPagesLaunch} which records the time of login, page travel and page transfer
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class TimedWebPagesLaunch extends WebPagesLaunch {
+  private final StageTimer timer;
+  private final AtomicInteger transferredPages = new AtomicInteger();
+
+  public TimedWebPagesLaunch(WebPagesConfigure config, StageTimer timer) {
+    super(config);
+    this.timer = timer;
+  }
+
+  @Override
+  protected void loginAndAuth(WebClient webClient)
+      throws FailingHttpStatusCodeException, MalformedURLException, IOException {
+    long start = System.nanoTime();
+    try {
+      super.loginAndAuth(webClient);
+    } finally {
+      timer.record("login", start);
+    }
+  }
+
+  @Override
+  protected void catalogResolver(WebClient webClient) {
+    long start = System.nanoTime();
+    try {
+      super.catalogResolver(webClient);
+    } finally {
+      timer.record("travel", start);
+    }
+  }
+
+  @Override
+  protected void chainResolver(WebClient webClient) {
+    long start = System.nanoTime();
+    try {
+      super.chainResolver(webClient);
+    } finally {
+      timer.record("travel", start);
+    }
+  }
+
+  @Override
+  protected HtmlPageTransfer getHtmlPageTransfer(HtmlPage htmlPage, File file) {
+    transferredPages.incrementAndGet();
+    return new TimedHtmlPageTransfer(htmlPage, file, timer);
+  }
+
+  public int getTransferredPages() {
+    return transferredPages.get();
+  }
+}
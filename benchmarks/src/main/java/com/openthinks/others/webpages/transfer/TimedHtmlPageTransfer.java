@@ -0,0 +1,74 @@
+package com.openthinks.others.webpages.transfer;
+
+import java.io.File;
+
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.others.webpages.bench.StageTimer;
+
+/**
+ * The {@link HtmlPageTransfer} which records the time of each transfer step; when the resources are
+ * kept by executor, the time of keeping them is mostly in <code>await-resources</code>
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class TimedHtmlPageTransfer extends HtmlPageTransfer {
+  private final StageTimer timer;
+
+  public TimedHtmlPageTransfer(HtmlPage htmlPage, File keepDir, StageTimer timer) {
+    super(htmlPage, keepDir);
+    this.timer = timer;
+  }
+
+  @Override
+  public void transfer() {
+    long start = System.nanoTime();
+    try {
+      super.transfer();
+    } finally {
+      timer.record("transfer", start);
+    }
+  }
+
+  @Override
+  void processScriptElements() {
+    long start = System.nanoTime();
+    super.processScriptElements();
+    timer.record("transfer.scripts", start);
+  }
+
+  @Override
+  void processImgElements() {
+    long start = System.nanoTime();
+    super.processImgElements();
+    timer.record("transfer.images", start);
+  }
+
+  @Override
+  void processVideoElements() {
+    long start = System.nanoTime();
+    super.processVideoElements();
+    timer.record("transfer.videos", start);
+  }
+
+  @Override
+  void processStylesheets() {
+    long start = System.nanoTime();
+    super.processStylesheets();
+    timer.record("transfer.stylesheets", start);
+  }
+
+  @Override
+  protected void awaitResourceKeeps() {
+    long start = System.nanoTime();
+    super.awaitResourceKeeps();
+    timer.record("transfer.await-resources", start);
+  }
+
+  @Override
+  void processPage() {
+    long start = System.nanoTime();
+    super.processPage();
+    timer.record("transfer.page", start);
+  }
+}
@@ -0,0 +1,69 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openthinks.others.webpages.bench.Fixtures;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+
+/**
+ * Rewrite the references of stylesheet by the regex of {@link HtmlPageTransfer} against
+ * {@link CssReferenceTokenizer}, without keeping the references
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CssReferenceTokenizerBenchmark {
+
+  /**
+   * the copies of fixture stylesheet, 2048 copies is about 3MB like the framework stylesheets
+   */
+  @Param({"1", "64", "2048"})
+  public int copies;
+
+  private String css;
+  private CssReferenceTokenizer tokenizer;
+
+  @Setup
+  public void setup() {
+    css = Fixtures.repeat(Fixtures.text("book.css"), copies);
+    tokenizer = new CssReferenceTokenizer((reference, imported) -> {
+      return "styleref/" + reference;
+    });
+  }
+
+  @Benchmark
+  public String regex() {
+    Matcher matcher = HtmlPageTransfer.RESOURCE_STYLE_REFERENCE_PATTERN.matcher(css);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(sb, "url(styleref/" + matcher.group(1) + ")");
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  @Benchmark
+  public String tokenizer() throws IOException {
+    return tokenizer.rewrite(css).toString();
+  }
+}
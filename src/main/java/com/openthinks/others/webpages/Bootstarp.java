@@ -152,26 +152,27 @@ public final class Bootstarp {
       configList.add(cf);
     });
 
-    for (WebPagesConfigure cf : configList) {
-      try {
-        INSTANCE.setConfig(cf);
-        INSTANCE.start();
-        cf.getBookTaskInfo().ifPresent(ti -> {
-          ti.setIsProcessed("true");
-        });
-      } catch (Exception e) {
-        ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e);
-        cf.getBookTaskInfo().ifPresent(ti -> {
-          ti.setIsProcessed("false");
-        });
-      } finally {
-        INSTANCE.stop();
-      }
-      cf.getBookTaskInfo().ifPresent(ti -> {
-        ti.keep();
-      });
+    GroupTaskScheduler scheduler = new GroupTaskScheduler(() -> newLaunchOf(INSTANCE), config);
+    try {
+      scheduler.run(configList);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), "Group task was interrupted.");
     }
+  }
 
+  /**
+   * create another launch of the same implementation, each group task has its own launch
+   * 
+   * @param prototype the launch loaded by {@link ServiceLoader}
+   * @return {@link Launch}
+   */
+  private static Launch newLaunchOf(Launch prototype) {
+    try {
+      return prototype.getClass().getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot create launch " + prototype.getClass(), e);
+    }
   }
 
   private static boolean hasGroupTask(WebPagesConfigure config) {
@@ -0,0 +1,174 @@
+package com.openthinks.others.webpages;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.conf.DownloadBookTaskInfo;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+
+/**
+ * The scheduler of group tasks, which downloads each book by its own {@link Launch} instance.<BR>
+ * At most <code>group-worker-count</code> books are downloading at a time, and at most
+ * <code>group-per-host-limit</code> of them from the same host; the pending books are taken host by
+ * host in turn, so a site with many books does not hold all workers. The status of each task is
+ * kept into its file as soon as the task finishes.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class GroupTaskScheduler {
+  private final Supplier<Launch> launchFactory;
+  private final int workerCount;
+  private final int perHostLimit;
+  private final SharedLoginSession sharedSession;
+  // the pending tasks by host, the host served last is moved to the end
+  private final LinkedHashMap<String, Deque<WebPagesConfigure>> pending = new LinkedHashMap<>();
+  private final Map<String, Integer> running = new HashMap<>();
+
+  /**
+   * @param launchFactory create a new {@link Launch} for each task
+   * @param config the main configuration of group task
+   */
+  public GroupTaskScheduler(Supplier<Launch> launchFactory, WebPagesConfigure config) {
+    this.launchFactory = launchFactory;
+    this.workerCount = config.getGroupWorkerCount();
+    this.perHostLimit = config.getGroupPerHostLimit();
+    this.sharedSession = config.isGroupShareLogin() ? SharedLoginSession.of(config) : null;
+  }
+
+  /**
+   * download the books of given tasks, return after all of them finished
+   *
+   * @param tasks the configuration of each book
+   * @throws InterruptedException when interrupted while waiting for the workers
+   */
+  public void run(List<WebPagesConfigure> tasks) throws InterruptedException {
+    synchronized (this) {
+      for (WebPagesConfigure task : tasks) {
+        pending.computeIfAbsent(hostOf(task), (host) -> new ArrayDeque<>()).add(task);
+      }
+    }
+    int workers = Math.min(workerCount, tasks.size());
+    if (workers <= 1) {
+      runWorker(0);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      for (int i = 0; i < workers; i++) {
+        final int slot = i;
+        executor.execute(() -> runWorker(slot));
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * download the tasks one by one until no more task
+   *
+   * @param slot the index of worker, the books downloading at a time have different slots
+   */
+  private void runWorker(int slot) {
+    try {
+      WebPagesConfigure task = null;
+      while ((task = take()) != null) {
+        try {
+          // the books downloading at a time can not bind the same port
+          if (task.getStatusPort() > 0)
+            task.setStatusPort(task.getStatusPort() + slot);
+          execute(task);
+        } finally {
+          release(task);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * take the next task of the first host which is under its limit, wait if all hosts are busy
+   *
+   * @return the task or null if no more task
+   */
+  private synchronized WebPagesConfigure take() throws InterruptedException {
+    while (!pending.isEmpty()) {
+      Iterator<Map.Entry<String, Deque<WebPagesConfigure>>> iter = pending.entrySet().iterator();
+      while (iter.hasNext()) {
+        Map.Entry<String, Deque<WebPagesConfigure>> entry = iter.next();
+        String host = entry.getKey();
+        if (running.getOrDefault(host, 0) < perHostLimit) {
+          Deque<WebPagesConfigure> queue = entry.getValue();
+          WebPagesConfigure task = queue.poll();
+          iter.remove();
+          if (!queue.isEmpty())
+            pending.put(host, queue);
+          running.merge(host, 1, Integer::sum);
+          return task;
+        }
+      }
+      wait();
+    }
+    return null;
+  }
+
+  private synchronized void release(WebPagesConfigure task) {
+    running.computeIfPresent(hostOf(task), (host, count) -> count > 1 ? count - 1 : null);
+    notifyAll();
+  }
+
+  /**
+   * download one book by a new launch, and keep its status
+   *
+   * @param config the configuration of the book
+   */
+  protected void execute(WebPagesConfigure config) {
+    Launch launch = null;
+    boolean completed = false;
+    try {
+      launch = launchFactory.get();
+      if (sharedSession != null && launch instanceof WebPagesLaunch) {
+        ((WebPagesLaunch) launch).setSharedSession(sharedSession);
+      }
+      launch.setConfig(config);
+      launch.start();
+      completed = launch.isCompleted();
+    } catch (Exception e) {
+      ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e);
+    } finally {
+      if (launch != null)
+        launch.stop();
+    }
+    if (config.getBookTaskInfo().isPresent()) {
+      DownloadBookTaskInfo taskInfo = config.getBookTaskInfo().get();
+      taskInfo.setIsProcessed(String.valueOf(completed));
+      taskInfo.keep();
+    }
+  }
+
+  private static String hostOf(WebPagesConfigure config) {
+    String url = config.getCatalogPageUrl().orElse(config.getStartChainPageUrl().orElse(""));
+    try {
+      return new URL(url.trim()).getHost().toLowerCase(Locale.ROOT);
+    } catch (MalformedURLException e) {
+      return "";
+    }
+  }
+}
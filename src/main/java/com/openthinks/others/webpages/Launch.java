@@ -20,6 +20,15 @@ public interface Launch {
    */
   void stop();
 
+  /**
+   * the result of last {@link #start()}, the failures handled inside the transfer make it false
+   * 
+   * @return true if all pages were downloaded without being aborted or stopped
+   */
+  default boolean isCompleted() {
+    return true;
+  }
+
   /**
    * configuration of web page transfer
    * 
@@ -0,0 +1,226 @@
+package com.openthinks.others.webpages;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.util.Cookie;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+import com.openthinks.others.webpages.util.ResourceWriter;
+
+/**
+ * The login session of launches, shared by the launches of one group task.<BR>
+ * The first launch which needs login runs the form login and the others copy its cookies; a
+ * re-login of any launch is published to the others, so the group logs in once for each session
+ * instead of once for each book.<BR>
+ * When <code>keep-session</code> is on, the cookies are also kept in {@link #SESSION_FILE} of the
+ * save directory; the cookies restored from it are checked once by the launch before use, and the
+ * form login runs only when they are rejected.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class SharedLoginSession {
+  public static final String SESSION_FILE = ".keeper-session";
+  private static final String SEPARATOR = "\t";
+
+  private final File file;
+  private Set<Cookie> cookies = Collections.emptySet();
+  // increased after each login, 0 means no login yet
+  private int generation = 0;
+  // the cookies restored from file, not checked yet
+  private boolean restored = false;
+
+  public SharedLoginSession() {
+    this(null);
+  }
+
+  /**
+   * @param file the file which keeps the cookies, null means memory only
+   */
+  public SharedLoginSession(File file) {
+    this.file = file;
+    if (file != null && file.isFile()) {
+      restore();
+    }
+  }
+
+  /**
+   * the session of given configuration, kept in the save directory if <code>keep-session</code> is
+   * on
+   *
+   * @param config {@link WebPagesConfigure} before the book directory is applied
+   * @return {@link SharedLoginSession}
+   */
+  public static SharedLoginSession of(WebPagesConfigure config) {
+    if (config.isKeepSession() && config.getKeepDir().isPresent()) {
+      return new SharedLoginSession(new File(config.getKeepDir().get(), SESSION_FILE));
+    }
+    return new SharedLoginSession();
+  }
+
+  /**
+   * bring the given client into the session: copy the cookies if the session is newer than the one
+   * the client has, otherwise log in by the given action and publish the new cookies; the other
+   * launches wait for the check or login in progress
+   *
+   * @param webClient the authenticated {@link WebClient} of launch
+   * @param knownGeneration the generation returned to the launch last time, 0 for a new launch
+   * @param login the form login of launch
+   * @param check the check of restored cookies
+   * @return the generation the client has now
+   * @throws IOException when failed to log in
+   */
+  public synchronized int join(WebClient webClient, int knownGeneration, LoginAction login,
+      SessionCheck check) throws IOException {
+    if (generation != knownGeneration) {
+      for (Cookie cookie : cookies) {
+        webClient.getCookieManager().addCookie(cookie);
+      }
+      if (!restored) {
+        return generation;
+      }
+      if (isAccepted(webClient, check)) {
+        ProcessLogger.info("Reuse the login session kept in " + file);
+        restored = false;
+        return generation;
+      }
+      ProcessLogger.info("The login session kept in " + file + " was rejected.");
+      webClient.getCookieManager().clearCookies();
+      restored = false;
+    }
+    login.login(webClient);
+    cookies = new LinkedHashSet<>(webClient.getCookieManager().getCookies());
+    store();
+    return ++generation;
+  }
+
+  /**
+   * @return the generation of current session, 0 means no login yet
+   */
+  public synchronized int getGeneration() {
+    return generation;
+  }
+
+  private boolean isAccepted(WebClient webClient, SessionCheck check) {
+    try {
+      return check.isValid(webClient);
+    } catch (IOException | RuntimeException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      return false;
+    }
+  }
+
+  private void restore() {
+    Set<Cookie> loaded = new LinkedHashSet<>();
+    Date now = new Date();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line = null;
+      while ((line = reader.readLine()) != null) {
+        Cookie cookie = parse(line);
+        if (cookie != null && (cookie.getExpires() == null || cookie.getExpires().after(now)))
+          loaded.add(cookie);
+      }
+    } catch (IOException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      return;
+    }
+    if (!loaded.isEmpty()) {
+      cookies = loaded;
+      generation = 1;
+      restored = true;
+    }
+  }
+
+  /**
+   * write the cookies into a new file beside the file and rename, the new file is created readable by
+   * the owner only where supported
+   */
+  private void store() {
+    if (file == null)
+      return;
+    Path tempPath = ResourceWriter.tempPathOf(file);
+    try {
+      Files.createDirectories(tempPath.getParent());
+      Files.deleteIfExists(tempPath);
+      try {
+        // the cookies are never readable by others, not even before the permissions are set
+        Files.createFile(tempPath,
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      } catch (UnsupportedOperationException e) {
+        // not a POSIX file system
+        Files.createFile(tempPath);
+      }
+      try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+        for (Cookie cookie : cookies) {
+          writer.write(format(cookie));
+          writer.newLine();
+        }
+      }
+      ResourceWriter.moveAtomically(tempPath, file.toPath());
+    } catch (IOException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      try {
+        Files.deleteIfExists(tempPath);
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  static String format(Cookie cookie) {
+    Date expires = cookie.getExpires();
+    return String.join(SEPARATOR, clean(cookie.getDomain()), clean(cookie.getName()),
+        clean(cookie.getValue()), clean(cookie.getPath()),
+        expires == null ? "" : String.valueOf(expires.getTime()),
+        String.valueOf(cookie.isSecure()), String.valueOf(cookie.isHttpOnly()));
+  }
+
+  static Cookie parse(String line) {
+    String[] items = line.split(SEPARATOR, -1);
+    if (items.length < 7 || items[1].isEmpty())
+      return null;
+    Date expires = null;
+    if (!items[4].isEmpty()) {
+      try {
+        expires = new Date(Long.parseLong(items[4]));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return new Cookie(items[0], items[1], items[2], items[3].isEmpty() ? null : items[3], expires,
+        Boolean.parseBoolean(items[5]), Boolean.parseBoolean(items[6]));
+  }
+
+  private static String clean(String value) {
+    if (value == null)
+      return "";
+    return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+  }
+
+  @FunctionalInterface
+  public interface LoginAction {
+    void login(WebClient webClient) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface SessionCheck {
+    /**
+     * @param webClient the client which has the restored cookies
+     * @return true if the site accepts the cookies
+     * @throws IOException when failed to check
+     */
+    boolean isValid(WebClient webClient) throws IOException;
+  }
+}
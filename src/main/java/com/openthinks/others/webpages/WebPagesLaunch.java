@@ -2,21 +2,43 @@ package com.openthinks.others.webpages;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.LogManager;
-import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import com.gargoylesoftware.htmlunit.DefaultCredentialsProvider;
 import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
+import com.gargoylesoftware.htmlunit.TopLevelWindow;
 import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebWindow;
+import com.gargoylesoftware.htmlunit.util.Cookie;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.DomNodeList;
 import com.gargoylesoftware.htmlunit.html.HtmlAnchor;
+import com.gargoylesoftware.htmlunit.html.HTMLParser;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlForm;
 import com.gargoylesoftware.htmlunit.html.HtmlInput;
@@ -28,8 +50,16 @@ import com.openthinks.others.webpages.conf.WebPagesConfigure;
 import com.openthinks.others.webpages.exception.LaunchFailedException;
 import com.openthinks.others.webpages.exception.LostConfigureItemException;
 import com.openthinks.others.webpages.exception.ManualStopException;
+import com.openthinks.others.webpages.keeper.CrawlManifest;
+import com.openthinks.others.webpages.metrics.CrawlMetrics;
+import com.openthinks.others.webpages.metrics.CrawlStatus;
+import com.openthinks.others.webpages.metrics.CrawlStatusMXBean;
+import com.openthinks.others.webpages.metrics.StatusHttpEndpoint;
 import com.openthinks.others.webpages.transfer.BatchHtmlPageTransfer;
 import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+import com.openthinks.others.webpages.transfer.TransferContext;
+import com.openthinks.others.webpages.util.ResourceType;
+import com.openthinks.others.webpages.util.ResponseCache;
 
 /**
  * The web pages download launcher
@@ -38,6 +68,8 @@ import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
  *
  */
 public class WebPagesLaunch implements Launch {
+  // the pages are never navigated back, the history keeps only the current ones
+  private static final int HISTORY_SIZE_LIMIT = 2;
 
   protected WebPagesConfigure config;
 
@@ -45,10 +77,41 @@ public class WebPagesLaunch implements Launch {
 
   private volatile boolean running = false;
 
+  private volatile boolean completed = false;
+
+  // the failure which ends the travel of pages early
+  private volatile boolean travelAborted = false;
+
   protected volatile boolean sessionTimeout = false;
 
   protected Timer sessionTimer = null;
 
+  private final Object sessionLock = new Object();
+
+  // increased after each re-login, workers compare it to know when to copy cookies again
+  private final AtomicInteger sessionVersion = new AtomicInteger();
+
+  private final List<WebClient> workerClients = new CopyOnWriteArrayList<>();
+
+  private volatile TransferContext transferContext = null;
+
+  // the pages listed in catalog, -1 means unknown
+  private final AtomicInteger pagesTotal = new AtomicInteger(-1);
+
+  private final AtomicInteger pagesDone = new AtomicInteger();
+
+  private ObjectName statusName = null;
+
+  private StatusHttpEndpoint statusEndpoint = null;
+
+  private SharedLoginSession sharedSession = null;
+
+  // the shared session, or the own session of current run
+  private SharedLoginSession loginSession = null;
+
+  // the generation of login session which the authenticated client has
+  private int sessionGeneration = 0;
+
   public WebPagesLaunch() {
     super();
   }
@@ -69,6 +132,20 @@ public class WebPagesLaunch implements Launch {
     this.config = config;
   }
 
+  /**
+   * join the login session shared by the launches of group task, instead of logging in alone
+   * 
+   * @param sharedSession {@link SharedLoginSession}, null means logging in alone
+   */
+  public void setSharedSession(SharedLoginSession sharedSession) {
+    this.sharedSession = sharedSession;
+  }
+
+  @Override
+  public boolean isCompleted() {
+    return completed;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -85,6 +162,9 @@ public class WebPagesLaunch implements Launch {
     }
     ProcessLogger.currentLevel = config.getLoggerLevel();
     try {
+      // the session is kept in save directory, before the book directory is applied
+      loginSession = sharedSession != null ? sharedSession : SharedLoginSession.of(config);
+      sessionGeneration = 0;
       this.preProcessConfigure();
       this.launch();
     } catch (SecurityException | IOException | LostConfigureItemException e) {
@@ -113,17 +193,22 @@ public class WebPagesLaunch implements Launch {
     if (!config.getKeepDir().isPresent())
       throw new LostConfigureItemException("Lost configuration for save dir.");
     running = true;
+    completed = false;
+    travelAborted = false;
+    transferContext = createTransferContext();
+    startStatus(transferContext);
     final WebClient webClient = createWebClient();
     try {
       referClient = webClient;
-      webClient.getOptions().setThrowExceptionOnScriptError(false);
-      webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
-      webClient.getOptions().setTimeout(35000);
+      configureWebClient(webClient);
       if (config.needLogin().isPresent() && config.needLogin().get())
-        loginAndAuth(webClient);
+        login(webClient);
       startTimer();
+      configurePageClient(webClient);
       // bowser all pages
       travelWholePages(webClient);
+      // the stop request ends the travel early too
+      completed = running && !travelAborted;
       ProcessLogger.info("All pages has been download.");
       processNormalCompleted();
     } catch (ManualStopException e) {// manual stop exception happened
@@ -135,6 +220,38 @@ public class WebPagesLaunch implements Launch {
     }
   }
 
+  /**
+   * apply the common options to the given client
+   * 
+   * @param webClient {@link WebClient}
+   */
+  protected void configureWebClient(WebClient webClient) {
+    webClient.getOptions().setThrowExceptionOnScriptError(false);
+    webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+    webClient.getOptions().setTimeout(35000);
+    // the pages are never navigated back, keep the history small and without cached pages
+    webClient.getOptions().setHistorySizeLimit(HISTORY_SIZE_LIMIT);
+    webClient.getOptions().setHistoryPageCacheLimit(0);
+    Optional<ResponseCache> responseCache = ResponseCache.shared(config);
+    if (responseCache.isPresent()) {
+      webClient.setCache(responseCache.get().newClientCache());
+    } else {
+      webClient.getCache().setMaxSize(config.getClientCacheSize());
+    }
+  }
+
+  /**
+   * switch the client options for catalog and content pages, after the login which always runs
+   * JavaScript
+   * 
+   * @param webClient {@link WebClient}
+   */
+  protected void configurePageClient(WebClient webClient) {
+    boolean parserOnly = config.isPageParserOnly();
+    webClient.getOptions().setJavaScriptEnabled(config.isPageJavaScript() && !parserOnly);
+    webClient.getOptions().setCssEnabled(config.isPageCss() && !parserOnly);
+  }
+
   protected void processAbort(Exception e) {
     stop();
   }
@@ -191,6 +308,7 @@ public class WebPagesLaunch implements Launch {
   protected void loginAndAuth(WebClient webClient)
       throws FailingHttpStatusCodeException, MalformedURLException, IOException {
     webClient.getOptions().setJavaScriptEnabled(true);
+    webClient.getOptions().setCssEnabled(true);
     ProcessLogger.info("Open login page...");
     if (!config.getLoginPageUrl().isPresent())
       throw new LostConfigureItemException("Lost configuration for login page url.");
@@ -272,6 +390,47 @@ public class WebPagesLaunch implements Launch {
     ProcessLogger.info("Login success.");
   }
 
+  /**
+   * join the login session, which may be logged in by another launch or restored from the session
+   * file; the form login runs only when the session has no newer cookies or they are rejected
+   * 
+   * @param webClient {@link WebClient}
+   * @throws IOException
+   */
+  protected void login(WebClient webClient) throws IOException {
+    if (loginSession == null) {
+      loginSession = new SharedLoginSession();
+    }
+    sessionGeneration =
+        loginSession.join(webClient, sessionGeneration, this::loginAndAuth, this::isSessionValid);
+  }
+
+  /**
+   * check the restored session by requesting the first page without JavaScript, it is rejected when
+   * the site answers by an error status or sends the client to the login page
+   * 
+   * @param webClient the {@link WebClient} with restored cookies
+   * @return true if accepted
+   * @throws IOException
+   */
+  protected boolean isSessionValid(WebClient webClient) throws IOException {
+    Optional<String> pageUrl = config.getCatalogPageUrl().isPresent() ? config.getCatalogPageUrl()
+        : config.getStartChainPageUrl();
+    if (!pageUrl.isPresent() || !config.getLoginPageUrl().isPresent())
+      return false;
+    URL loginUrl = new URL(config.getLoginPageUrl().get());
+    WebResponse response = webClient.loadWebResponse(new WebRequest(new URL(pageUrl.get())));
+    int status = response.getStatusCode();
+    URL landed = response.getWebRequest().getUrl();
+    String location = response.getResponseHeaderValue("Location");
+    if (status >= 300 && status < 400 && location != null) {
+      landed = new URL(landed, location);
+    }
+    boolean loginPage = landed.getHost().equalsIgnoreCase(loginUrl.getHost())
+        && landed.getPath().equals(loginUrl.getPath());
+    return status < 400 && !loginPage;
+  }
+
   protected HtmlPage processBeforeLogin(HtmlPage loginPage, WebClient webClient) {
     return loginPage;
   }
@@ -302,47 +461,368 @@ public class WebPagesLaunch implements Launch {
           "Lost configuration for page link selector on catalog page.");
     try {
       checkRuning();
-      HtmlPage catalogPage = webClient.getPage(catalogURL);
-      HtmlPageTransfer htmlPageTransfer =
-          getHtmlPageTransfer(catalogPage.cloneNode(true), config.getKeepDir().get());
-      htmlPageTransfer.transfer();
-      DomNodeList<DomNode> links =
-          catalogPage.getBody().querySelectorAll(config.getPageLinkOfCatalogSelector().get());
-
-      List<DomNode> nodes = links.stream().filter((domNode) -> {
-        DomElement el = (DomElement) domNode;
-        return el.hasAttribute("href") && !el.getAttribute("href").isEmpty()
-            && !el.getAttribute("href").startsWith("#");
-      }).collect(Collectors.toList());
-      ListIterator<DomNode> iter = nodes.listIterator();
+      List<URL> pageUrls;
+      HtmlPage catalogPage = loadPage(webClient, new URL(catalogURL));
+      try {
+        // the links are taken before transfer, which changes them to local ones
+        pageUrls = extractPageUrls(catalogPage, config.getPageLinkOfCatalogSelector().get());
+        HtmlPageTransfer htmlPageTransfer =
+            newHtmlPageTransfer(catalogPage, config.getKeepDir().get());
+        htmlPageTransfer.transfer();
+      } finally {
+        releasePage(catalogPage);
+        catalogPage = null;
+      }
+      pagesTotal.set(pageUrls.size());
+      if (config.getCatalogWorkerCount() > 1) {
+        concurrentCatalogResolver(webClient, pageUrls);
+        return;
+      }
+      Iterator<URL> iter = pageUrls.iterator();
       while (running && iter.hasNext()) {
         checkRuning();
-        DomElement el = (DomElement) iter.next();
-        String relativeUrl = el.getAttribute("href");
+        URL currentUrl = iter.next();
         HtmlPage currentPage = null;
-        ProcessLogger.debug(relativeUrl);
+        ProcessLogger.debug(currentUrl.toString());
         try {
+          if (isPageKept(currentUrl)) {
+            ProcessLogger.info("Skip the page kept by previous run:" + currentUrl);
+            pagesDone.incrementAndGet();
+            continue;
+          }
           reLoginIfNecessary(webClient);
-          URL currentUrl = catalogPage.getFullyQualifiedUrl(relativeUrl);
-          ProcessLogger.debug(currentUrl.toString());
-          currentPage = webClient.getPage(currentUrl);
+          currentPage = loadPageIfModified(webClient, currentUrl);
+          if (currentPage == null) {
+            ProcessLogger.info("Skip the page not modified since previous run:" + currentUrl);
+            pagesDone.incrementAndGet();
+            continue;
+          }
           ProcessLogger.info("Go to download page:" + currentUrl);
           HtmlPageTransfer pageTransfer =
-              getHtmlPageTransfer(currentPage, config.getKeepDir().get());
+              newHtmlPageTransfer(currentPage, config.getKeepDir().get());
           pageTransfer.transfer();
+          pagesDone.incrementAndGet();
         } catch (Exception e) {
+          countPageError();
           ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
         } finally {
-          if (currentPage != null)
-            currentPage.cleanUp();
+          releasePage(currentPage);
           currentPage = null;
         }
       }
     } catch (FailingHttpStatusCodeException | IOException | LostConfigureItemException e) {
+      travelAborted = true;
       ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
     }
   }
 
+  /**
+   * take the URLs of page links on catalog page
+   * 
+   * @param catalogPage the catalog page
+   * @param selector the selector of page links
+   * @return the URLs of pages in catalog order
+   */
+  protected List<URL> extractPageUrls(HtmlPage catalogPage, String selector) {
+    List<URL> pageUrls = new ArrayList<>();
+    for (DomNode node : catalogPage.getBody().querySelectorAll(selector)) {
+      if (!(node instanceof DomElement))
+        continue;
+      String href = ((DomElement) node).getAttribute("href");
+      if (href.isEmpty() || href.startsWith("#"))
+        continue;
+      try {
+        pageUrls.add(catalogPage.getFullyQualifiedUrl(href));
+      } catch (MalformedURLException e) {
+        ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+    }
+    return pageUrls;
+  }
+
+  /**
+   * release the page after transfer, its top-level window is closed, so that the DOM, history and
+   * JavaScript scope of the page can be collected; the client opens a new window for next page
+   * 
+   * @param page {@link HtmlPage}, nothing to do if null
+   */
+  protected void releasePage(HtmlPage page) {
+    if (page == null)
+      return;
+    WebWindow window = page.getEnclosingWindow();
+    page.cleanUp();
+    if (window != null)
+      closeWindow(window.getTopWindow());
+  }
+
+  /**
+   * download the pages of catalog by a bounded pool of workers, each worker owns its own
+   * {@link WebClient} which share the login cookies of the given client
+   * 
+   * @param webClient the authenticated {@link WebClient}
+   * @param catalogUrls the URLs of pages on catalog page
+   */
+  protected void concurrentCatalogResolver(WebClient webClient, List<URL> catalogUrls) {
+    final Queue<URL> pageUrls = new ConcurrentLinkedQueue<>(catalogUrls);
+    int workerCount = Math.min(config.getCatalogWorkerCount(), pageUrls.size());
+    if (workerCount <= 0)
+      return;
+    ProcessLogger.info("Start " + workerCount + " workers to download " + pageUrls.size() + " pages.");
+    ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < workerCount; i++) {
+        futures.add(workers.submit(new CatalogPageWorker(webClient, pageUrls)));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof ManualStopException)
+            throw (ManualStopException) e.getCause();
+          ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getCause().getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ManualStopException(e);
+    } finally {
+      workers.shutdownNow();
+    }
+    checkRuning();
+  }
+
+  /**
+   * the worker which takes the page url from the shared queue until it is empty or stopped
+   */
+  protected class CatalogPageWorker implements Runnable {
+    private final WebClient authClient;
+    private final Queue<URL> pageUrls;
+    private int currentSessionVersion;
+
+    public CatalogPageWorker(WebClient authClient, Queue<URL> pageUrls) {
+      this.authClient = authClient;
+      this.pageUrls = pageUrls;
+    }
+
+    @Override
+    public void run() {
+      final WebClient workerClient = createWorkerClient(authClient);
+      currentSessionVersion = sessionVersion.get();
+      try {
+        URL currentUrl = null;
+        while (running && (currentUrl = pageUrls.poll()) != null) {
+          checkRuning();
+          HtmlPage currentPage = null;
+          try {
+            if (isPageKept(currentUrl)) {
+              ProcessLogger.info("Skip the page kept by previous run:" + currentUrl);
+              pagesDone.incrementAndGet();
+              continue;
+            }
+            reLoginIfNecessary(authClient);
+            syncSession(workerClient);
+            currentPage = loadPageIfModified(workerClient, currentUrl);
+            if (currentPage == null) {
+              ProcessLogger.info("Skip the page not modified since previous run:" + currentUrl);
+              pagesDone.incrementAndGet();
+              continue;
+            }
+            ProcessLogger.info("Go to download page:" + currentUrl);
+            HtmlPageTransfer pageTransfer =
+                newHtmlPageTransfer(currentPage, config.getKeepDir().get());
+            pageTransfer.transfer();
+            pagesDone.incrementAndGet();
+          } catch (Exception e) {
+            countPageError();
+            ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+          } finally {
+            releasePage(currentPage);
+            currentPage = null;
+          }
+        }
+      } finally {
+        workerClients.remove(workerClient);
+        workerClient.close();
+      }
+    }
+
+    private void syncSession(WebClient workerClient) {
+      int version = sessionVersion.get();
+      if (version != currentSessionVersion) {
+        copyCookies(authClient, workerClient);
+        currentSessionVersion = version;
+      }
+    }
+  }
+
+  /**
+   * create a new {@link WebClient} for worker, which has the same options and login cookies as the
+   * given client
+   * 
+   * @param authClient the authenticated {@link WebClient}
+   * @return {@link WebClient}
+   */
+  protected WebClient createWorkerClient(WebClient authClient) {
+    WebClient workerClient = createWebClient();
+    configureWebClient(workerClient);
+    configurePageClient(workerClient);
+    copyCookies(authClient, workerClient);
+    workerClients.add(workerClient);
+    return workerClient;
+  }
+
+  /**
+   * copy all cookies from one client to another
+   * 
+   * @param from source {@link WebClient}
+   * @param to target {@link WebClient}
+   */
+  protected void copyCookies(WebClient from, WebClient to) {
+    for (Cookie cookie : from.getCookieManager().getCookies()) {
+      to.getCookieManager().addCookie(cookie);
+    }
+  }
+
+  /**
+   * check the page was kept completely by previous run and needs no revalidation, according to the
+   * manifest of book
+   * 
+   * @param pageUrl page URL
+   * @return true if kept
+   */
+  protected boolean isPageKept(URL pageUrl) {
+    TransferContext context = transferContext;
+    return context != null && context.getResourceIndex().isPageKept(pageUrl);
+  }
+
+  /**
+   * load the page to download, the time is recorded in the metrics of current run
+   * 
+   * @param webClient {@link WebClient}
+   * @param pageUrl page URL
+   * @return {@link HtmlPage}
+   * @throws IOException
+   */
+  protected HtmlPage loadPage(WebClient webClient, URL pageUrl) throws IOException {
+    long start = System.nanoTime();
+    HtmlPage page = config.isPageParserOnly()
+        ? parsePage(webClient, webClient.getCurrentWindow().getTopWindow(), pageUrl)
+        : webClient.getPage(pageUrl);
+    recordPageLoad(pageUrl, start);
+    return page;
+  }
+
+  /**
+   * load the page to download; in incremental mode the page kept by previous run is requested with
+   * its recorded validators, and it is not loaded when the server answers it was not modified
+   * 
+   * @param webClient {@link WebClient}
+   * @param pageUrl page URL
+   * @return {@link HtmlPage} or null if not modified
+   * @throws IOException
+   */
+  protected HtmlPage loadPageIfModified(WebClient webClient, URL pageUrl) throws IOException {
+    TransferContext context = transferContext;
+    CrawlManifest.Record kept =
+        context == null ? null : context.getResourceIndex().keptPageOf(pageUrl);
+    if (kept == null || kept.getEtag() == null && kept.getLastModified() == null) {
+      return loadPage(webClient, pageUrl);
+    }
+    long start = System.nanoTime();
+    WebRequest request = new WebRequest(pageUrl);
+    if (kept.getEtag() != null)
+      request.setAdditionalHeader("If-None-Match", kept.getEtag());
+    if (kept.getLastModified() != null)
+      request.setAdditionalHeader("If-Modified-Since", kept.getLastModified());
+    WebResponse response = webClient.loadWebResponse(request);
+    if (response.getStatusCode() == 304) {
+      context.getMetrics().countRequest(pageUrl);
+      context.getMetrics().counter(CrawlMetrics.NOT_MODIFIED, ResourceType.TEXT_HTML).increment();
+      return null;
+    }
+    WebWindow window = webClient.getCurrentWindow().getTopWindow();
+    HtmlPage page = config.isPageParserOnly() ? HTMLParser.parseHtml(response, window)
+        : (HtmlPage) webClient.loadWebResponseInto(response, window);
+    recordPageLoad(pageUrl, start);
+    return page;
+  }
+
+  /**
+   * load the page into the given window, the time is recorded in the metrics of current run
+   * 
+   * @param webClient {@link WebClient}
+   * @param window the {@link WebWindow} of given client
+   * @param pageUrl page URL
+   * @return {@link HtmlPage}
+   * @throws IOException
+   */
+  protected HtmlPage loadPage(WebClient webClient, WebWindow window, URL pageUrl)
+      throws IOException {
+    long start = System.nanoTime();
+    HtmlPage page = config.isPageParserOnly() ? parsePage(webClient, window, pageUrl)
+        : webClient.getPage(window, new WebRequest(pageUrl));
+    recordPageLoad(pageUrl, start);
+    return page;
+  }
+
+  /**
+   * build the page from raw response by HTML parser only, the page is not loaded into the window,
+   * so neither JavaScript nor CSS of it is processed
+   * 
+   * @param webClient {@link WebClient}
+   * @param window the {@link WebWindow} which the page belongs to
+   * @param pageUrl page URL
+   * @return {@link HtmlPage}
+   * @throws IOException
+   */
+  protected HtmlPage parsePage(WebClient webClient, WebWindow window, URL pageUrl)
+      throws IOException {
+    WebResponse response = webClient.loadWebResponse(new WebRequest(pageUrl));
+    return HTMLParser.parseHtml(response, window);
+  }
+
+  private void recordPageLoad(URL pageUrl, long start) {
+    TransferContext context = transferContext;
+    if (context != null) {
+      context.getMetrics().record(CrawlMetrics.GET_PAGE, ResourceType.TEXT_HTML, start);
+      context.getMetrics().counter(CrawlMetrics.PAGES_LOADED).increment();
+      context.getMetrics().countRequest(pageUrl);
+    }
+  }
+
+  private void countPageError() {
+    TransferContext context = transferContext;
+    if (context != null) {
+      context.getMetrics().counter(CrawlMetrics.PAGE_ERRORS).increment();
+    }
+  }
+
+  /**
+   * return the shared context for all page transfers of current run
+   * 
+   * @return {@link TransferContext}
+   */
+  protected TransferContext createTransferContext() {
+    return TransferContext.create(config);
+  }
+
+  /**
+   * return page download helper which joined in the shared context of current run
+   * 
+   * @param htmlPage {@link HtmlPage}
+   * @param file {@link File}
+   * @return {@link HtmlPageTransfer}
+   */
+  protected final HtmlPageTransfer newHtmlPageTransfer(HtmlPage htmlPage, File file) {
+    HtmlPageTransfer pageTransfer = getHtmlPageTransfer(htmlPage, file);
+    TransferContext context = transferContext;
+    if (context != null) {
+      pageTransfer.setContext(context);
+    }
+    return pageTransfer;
+  }
+
   /**
    * return page download helper implementation
    * 
@@ -365,45 +845,244 @@ public class WebPagesLaunch implements Launch {
     checkRuning();
     ProcessLogger.info("Go to download the start page:" + nextURL);
     if (!config.getNextChainPageAnchorSelector().isPresent()) {// enhance for no next anchor
-      HtmlPage currentPage;
+      HtmlPage currentPage = null;
       try {
-        currentPage = webClient.getPage(nextURL);
+        currentPage = loadPage(webClient, new URL(nextURL));
         HtmlPageTransfer htmlPageTransfer =
-            getHtmlPageTransfer(currentPage, config.getKeepDir().get());
+            newHtmlPageTransfer(currentPage, config.getKeepDir().get());
         htmlPageTransfer.transfer();
+        pagesDone.incrementAndGet();
         ProcessLogger.info("Go to download next page:" + nextURL);
       } catch (FailingHttpStatusCodeException | IOException e) {
+        travelAborted = true;
         ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      } finally {
+        releasePage(currentPage);
       }
       return;
       // throw new LostConfigureItemException("Lost configuration for next page link
       // selector on each page.");
     }
+    if (config.getChainPrefetchDepth() > 0) {
+      prefetchChainResolver(webClient, nextURL, config.getChainPrefetchDepth());
+      return;
+    }
     do {
       checkRuning();
       HtmlPage currentPage = null;
       try {
         reLoginIfNecessary(webClient);
-        currentPage = webClient.getPage(nextURL);
+        currentPage = loadPage(webClient, new URL(nextURL));
         DomNode anchors =
             currentPage.getBody().querySelector(config.getNextChainPageAnchorSelector().get());
         nextAnchor = (HtmlAnchor) anchors;
         if (nextAnchor != null) {// issue for no found next anchor
           nextURL = currentPage.getFullyQualifiedUrl(nextAnchor.getHrefAttribute()).toString();
         }
-        HtmlPageTransfer pageTransfer = getHtmlPageTransfer(currentPage, config.getKeepDir().get());
+        HtmlPageTransfer pageTransfer = newHtmlPageTransfer(currentPage, config.getKeepDir().get());
         pageTransfer.transfer();
+        pagesDone.incrementAndGet();
         ProcessLogger.info("Go to download next page:" + nextURL);
       } catch (Exception e) {
+        countPageError();
+        travelAborted = true;
         ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
         nextAnchor = null;
       } finally {
-        if (currentPage != null)
-          currentPage.cleanUp();
+        releasePage(currentPage);
       }
     } while (nextAnchor != null && running);
   }
 
+  /**
+   * bowser the chain pages like {@link #chainResolver(WebClient)}, but the next pages are loaded
+   * ahead by a prefetch client which shares the login cookies of the given client, while the
+   * resources of current page are downloading by another client of the same cookies; neither
+   * client is used by two threads, so the downloaded pages are given back to the prefetch thread to
+   * close their windows
+   * 
+   * @param webClient the authenticated {@link WebClient}
+   * @param startURL the URL of first page
+   * @param depth the max number of pages loaded ahead
+   */
+  protected void prefetchChainResolver(WebClient webClient, String startURL, int depth) {
+    final BlockingQueue<PrefetchedPage> prefetched = new ArrayBlockingQueue<>(depth);
+    final Queue<PrefetchedPage> downloaded = new ConcurrentLinkedQueue<>();
+    final WebClient prefetchClient = createWorkerClient(webClient);
+    final WebClient resourceClient = createWorkerClient(webClient);
+    int resourceSessionVersion = sessionVersion.get();
+    ExecutorService prefetcher = Executors.newSingleThreadExecutor();
+    Future<?> future =
+        prefetcher.submit(new ChainPagePrefetcher(webClient, prefetchClient, startURL, prefetched,
+            downloaded));
+    ProcessLogger.info("Prefetch " + depth + " chain pages ahead.");
+    try {
+      while (running) {
+        checkRuning();
+        PrefetchedPage next = prefetched.poll(1, TimeUnit.SECONDS);
+        if (next == null) {
+          if (future.isDone() && prefetched.isEmpty())
+            break;
+          continue;
+        }
+        if (next == PrefetchedPage.END)
+          break;
+        try {
+          ProcessLogger.info("Go to download page:" + next.page.getUrl());
+          int version = sessionVersion.get();
+          if (version != resourceSessionVersion) {
+            copyCookies(webClient, resourceClient);
+            resourceSessionVersion = version;
+          }
+          HtmlPageTransfer pageTransfer = newHtmlPageTransfer(next.page, config.getKeepDir().get());
+          pageTransfer.setResourceClient(resourceClient);
+          pageTransfer.transfer();
+          pagesDone.incrementAndGet();
+        } catch (Exception e) {
+          countPageError();
+          travelAborted = true;
+          ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+          break;
+        } finally {
+          downloaded.offer(next);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ManualStopException(e);
+    } finally {
+      future.cancel(true);
+      prefetcher.shutdownNow();
+      try {
+        prefetcher.awaitTermination(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      // the prefetch thread is stopped, the left pages can be closed here
+      PrefetchedPage left = null;
+      while ((left = downloaded.poll()) != null) {
+        left.close();
+      }
+      while ((left = prefetched.poll()) != null) {
+        left.close();
+      }
+      workerClients.remove(prefetchClient);
+      prefetchClient.close();
+      workerClients.remove(resourceClient);
+      resourceClient.close();
+    }
+    checkRuning();
+  }
+
+  /**
+   * the producer which loads the chain pages one by one into its own window, and hands them to the
+   * download thread by a bounded queue; the pages downloaded are closed by it before loading next
+   */
+  protected class ChainPagePrefetcher implements Runnable {
+    private final WebClient authClient;
+    private final WebClient prefetchClient;
+    private final BlockingQueue<PrefetchedPage> prefetched;
+    private final Queue<PrefetchedPage> downloaded;
+    private String nextURL;
+    private int currentSessionVersion;
+
+    public ChainPagePrefetcher(WebClient authClient, WebClient prefetchClient, String startURL,
+        BlockingQueue<PrefetchedPage> prefetched, Queue<PrefetchedPage> downloaded) {
+      this.authClient = authClient;
+      this.prefetchClient = prefetchClient;
+      this.prefetched = prefetched;
+      this.downloaded = downloaded;
+      this.nextURL = startURL;
+    }
+
+    @Override
+    public void run() {
+      currentSessionVersion = sessionVersion.get();
+      int index = 0;
+      try {
+        while (running && nextURL != null) {
+          reLoginIfNecessary(authClient);
+          syncSession();
+          closeDownloaded();
+          WebWindow window = prefetchClient.openWindow(null, "prefetch-" + index++);
+          PrefetchedPage page = null;
+          boolean handedOff = false;
+          try {
+            HtmlPage currentPage = loadPage(prefetchClient, window, new URL(nextURL));
+            page = new PrefetchedPage(currentPage, window);
+            HtmlAnchor nextAnchor = (HtmlAnchor) currentPage.getBody()
+                .querySelector(config.getNextChainPageAnchorSelector().get());
+            nextURL = nextAnchor == null ? null
+                : currentPage.getFullyQualifiedUrl(nextAnchor.getHrefAttribute()).toString();
+            prefetched.put(page);
+            handedOff = true;
+          } finally {
+            // the page handed off is closed by the download thread
+            if (!handedOff) {
+              if (page != null)
+                page.close();
+              else
+                closeWindow(window);
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        countPageError();
+        travelAborted = true;
+        ProcessLogger.fatal(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      try {
+        prefetched.put(PrefetchedPage.END);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void closeDownloaded() {
+      PrefetchedPage page = null;
+      while ((page = downloaded.poll()) != null) {
+        page.close();
+      }
+    }
+
+    private void syncSession() {
+      int version = sessionVersion.get();
+      if (version != currentSessionVersion) {
+        copyCookies(authClient, prefetchClient);
+        currentSessionVersion = version;
+      }
+    }
+  }
+
+  /**
+   * the page loaded ahead with the window it belongs to
+   */
+  protected static final class PrefetchedPage {
+    static final PrefetchedPage END = new PrefetchedPage(null, null);
+    private final HtmlPage page;
+    private final WebWindow window;
+
+    PrefetchedPage(HtmlPage page, WebWindow window) {
+      this.page = page;
+      this.window = window;
+    }
+
+    void close() {
+      if (page != null)
+        page.cleanUp();
+      closeWindow(window);
+    }
+  }
+
+  private static void closeWindow(WebWindow window) {
+    if (window instanceof TopLevelWindow && !window.isClosed()) {
+      ((TopLevelWindow) window).close();
+    }
+  }
+
   /**
    * return a instance of {@link WebClient}
    * 
@@ -437,6 +1116,15 @@ public class WebPagesLaunch implements Launch {
   @Override
   public final void stop() {
     running = false;
+    stopStatus();
+    for (WebClient workerClient : workerClients) {
+      workerClient.close();
+    }
+    workerClients.clear();
+    if (transferContext != null) {
+      transferContext.close();
+      transferContext = null;
+    }
     if (referClient != null) {
       referClient.close();
       referClient = null;
@@ -444,6 +1132,67 @@ public class WebPagesLaunch implements Launch {
     stopTimer();
   }
 
+  /**
+   * ask the download to stop, the current pages are finished and then {@link #stop()} is called by
+   * the download thread
+   */
+  public void requestStop() {
+    ProcessLogger.info("Stop requested.");
+    running = false;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * register the {@link CrawlStatusMXBean} of current run, and start the local status endpoint if
+   * configured
+   * 
+   * @param context the context of current run
+   */
+  protected void startStatus(TransferContext context) {
+    String book = config.getBookName().orElse(config.getKeepDir().get().getName());
+    CrawlStatus status = new CrawlStatus(book, context.getMetrics(), pagesTotal::get,
+        pagesDone::get, this::isRunning, this::requestStop);
+    try {
+      ObjectName name = new ObjectName(CrawlStatus.OBJECT_NAME_PREFIX + ObjectName.quote(book));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), name + " was already registered.");
+      } else {
+        server.registerMBean(status, name);
+        statusName = name;
+      }
+    } catch (JMException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+    }
+    int statusPort = config.getStatusPort();
+    if (statusPort > 0) {
+      try {
+        statusEndpoint = StatusHttpEndpoint.start(statusPort, status);
+        ProcessLogger.info("Status endpoint: http://localhost:" + statusEndpoint.getPort() + "/status");
+      } catch (IOException e) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+    }
+  }
+
+  protected void stopStatus() {
+    if (statusEndpoint != null) {
+      statusEndpoint.close();
+      statusEndpoint = null;
+    }
+    if (statusName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(statusName);
+      } catch (JMException e) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      statusName = null;
+    }
+  }
+
   protected void checkRuning() {
     if (running == false) {
       throw new ManualStopException();
@@ -461,9 +1210,13 @@ public class WebPagesLaunch implements Launch {
   protected void reLoginIfNecessary(WebClient webClient)
       throws FailingHttpStatusCodeException, MalformedURLException, IOException {
     if (config.needLogin().isPresent() && config.needLogin().get()) {
-      if (sessionTimeout == true) {
-        loginAndAuth(webClient);
-        sessionTimeout = false;
+      synchronized (sessionLock) {
+        if (sessionTimeout == true) {
+          login(webClient);
+          configurePageClient(webClient);
+          sessionTimeout = false;
+          sessionVersion.incrementAndGet();
+        }
       }
     }
   }
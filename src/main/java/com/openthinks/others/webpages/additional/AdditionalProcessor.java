@@ -1,6 +1,12 @@
 package com.openthinks.others.webpages.additional;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
 
 public interface AdditionalProcessor {
 
@@ -8,4 +14,34 @@ public interface AdditionalProcessor {
 
 	String process(String htmlContent);
 
+	/**
+	 * process the serialized page while it is written; the processor which can work on the stream
+	 * should override it, the default one buffers the whole page for {@link #process(String)}
+	 * @param htmlWriter the writer to local file
+	 * @return the writer which the page is serialized into, it writes to <code>htmlWriter</code> and
+	 *         closes it when closed
+	 */
+	default Writer process(Writer htmlWriter) {
+		return new StringWriter() {
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				if (closed)
+					return;
+				closed = true;
+				String htmlContent = toString();
+				try (Writer out = htmlWriter) {
+					String newContent = htmlContent;
+					try {
+						newContent = process(htmlContent);
+					} catch (RuntimeException e) {
+						ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+					}
+					out.write(newContent);
+				}
+			}
+		};
+	}
+
 }
@@ -44,6 +44,8 @@ public class HtmlBinaryResourceAgent extends HtmlResourceAgent {
 
 	@Override
 	public void makeKeepToLocal(HtmlElement element) throws IOException {
+		if (this.keeper.streamResource(this::storeBinaryResource))
+			return;
 		WebResponse wrp = this.keeper.loadWebResponse(this.keeper.getResourceURL());
 		storeBinaryResource(wrp.getContentAsStream());
 	}
@@ -0,0 +1,26 @@
+package com.openthinks.others.webpages.agent;
+
+import java.util.Set;
+
+import com.gargoylesoftware.htmlunit.html.HtmlElement;
+import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+
+/**
+ * The css resource agent for the stylesheet imported by another stylesheet, its reference is
+ * changed in the content of the importing stylesheet instead of HTML page
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class HtmlCssImportResourceAgent extends HtmlCssResourceAgent {
+
+  public HtmlCssImportResourceAgent(HtmlResourceKeeper keeper, Set<String> ancestors) {
+    super(keeper, ancestors);
+  }
+
+  @Override
+  public void makeChangeToLocal(HtmlElement element) {
+    // No action for change
+  }
+
+}
@@ -24,29 +24,56 @@
 */
 package com.openthinks.others.webpages.agent;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.util.regex.Matcher;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.io.IOUtils;
 
 import com.gargoylesoftware.htmlunit.WebResponse;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
+import com.gargoylesoftware.htmlunit.util.UrlUtils;
 import com.openthinks.libs.utilities.CommonUtilities;
 import com.openthinks.libs.utilities.logger.ProcessLogger;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
-import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+import com.openthinks.others.webpages.transfer.TransferContext;
+import com.openthinks.others.webpages.util.CssReferenceTokenizer;
 import com.openthinks.others.webpages.util.ResourceType;
+import com.openthinks.others.webpages.util.TextCharset;
 
 /**
- * The css resource agent of HTML page
+ * The css resource agent of HTML page<BR>
+ * The stylesheets referenced by <code>@import</code> or <code>url()</code> are kept recursively into
+ * the css keep dir, other references are kept into the css reference dir.
  * 
  * @author dailey.yet@outlook.com
- *
+ * @see HtmlCssImportResourceAgent
  */
 public class HtmlCssResourceAgent extends HtmlTextResourceAgent {
+	/**
+	 * the URL of stylesheets which are importing current one, for cycle detection
+	 */
+	protected final Set<String> ancestors;
 
 	public HtmlCssResourceAgent(HtmlResourceKeeper keeper) {
+		this(keeper, Collections.emptySet());
+	}
+
+	protected HtmlCssResourceAgent(HtmlResourceKeeper keeper, Set<String> ancestors) {
 		super(keeper);
+		this.ancestors = ancestors;
 	}
 
 	@Override
@@ -54,16 +81,44 @@ public class HtmlCssResourceAgent extends HtmlTextResourceAgent {
 		return ResourceType.TEXT_CSS;
 	}
 
+	/**
+	 * the stylesheet is decoded in the charset told by byte order mark, <code>Content-Type</code> header,
+	 * <code>@charset</code> rule, then the referring page; it is kept byte by byte if no reference is
+	 * rewritten and the kept file still tells its charset, otherwise kept in UTF-8
+	 */
 	@Override
 	public void makeKeepToLocal(HtmlElement element) throws IOException {
 		WebResponse wrp = this.keeper.loadWebResponse(this.keeper.getResourceURL());
-		String styleCtx = wrp.getContentAsString();
+		byte[] content;
+		try (InputStream in = wrp.getContentAsStream()) {
+			content = IOUtils.toByteArray(in);
+		}
+		Charset bom = TextCharset.ofBom(content);
+		int offset = TextCharset.bomLength(bom);
+		Charset ruled = TextCharset.ofCssRule(content, offset);
+		Charset charset = bom;
+		if (charset == null)
+			charset = TextCharset.ofHeaders(wrp);
+		if (charset == null)
+			charset = ruled;
+		if (charset == null)
+			charset = referringCharsetOf(element);
+		if (charset == null)
+			charset = StandardCharsets.UTF_8;
+		String styleCtx = new String(content, offset, content.length - offset, charset);
+		String localCtx = styleCtx;
 		try {
-			styleCtx = deepIntoRef(styleCtx, element);
+			localCtx = deepIntoRef(styleCtx, element);
 		} catch (Exception e) {
 			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
 		}
-		storeTextResource(styleCtx);
+		boolean selfDescribed = bom != null
+				|| (ruled != null ? ruled.equals(charset) : TextCharset.isUtf8Compatible(charset));
+		if (selfDescribed && localCtx.equals(styleCtx)) {
+			storeBinaryResource(new ByteArrayInputStream(content));
+		} else {
+			storeTextResource(TextCharset.redeclareCssRule(localCtx, StandardCharsets.UTF_8));
+		}
 	}
 
 	@Override
@@ -72,44 +127,159 @@ public class HtmlCssResourceAgent extends HtmlTextResourceAgent {
 	}
 
 	/**
-	 * keep those reference in css, like <code>url()</code>
+	 * keep those reference in css, like <code>url()</code> and <code>@import</code>; the references
+	 * are resolved by the URL of current stylesheet and kept concurrently when the context has resource
+	 * executor, except the nested stylesheets which are kept on current thread; the references in
+	 * comments and strings are left as they are
 	 * 
 	 * @param styleCtx
 	 * @throws IOException
 	 * @return String the localized css after keep reference resource
 	 */
 	String deepIntoRef(String styleCtx, HtmlElement element) throws IOException {
-		Matcher matcher = HtmlPageTransfer.RESOURCE_STYLE_REFERENCE_PATTERN.matcher(styleCtx);
-		File refDir = getCssRefDir();
-		StringBuffer sb = new StringBuffer();
-		while (matcher.find()) {
-			String relativeURL = matcher.group(1);
-			URL styleRefUrl = keeper.getFullyQualifiedUrl(relativeURL);
-			WebResponse wrp = keeper.loadWebResponse(styleRefUrl);
-			final HtmlResourceKeeper refKeeper = new HtmlResourceKeeper(pageTransfer(), element, refDir);
-			if (wrp.getContentType().startsWith("image") || wrp.getContentType().startsWith("IMAGE")
-					|| ResourceType.IMAGE.isSupportSuffix(keeper.getResourceName())) {
-				refKeeper.initial(styleRefUrl, () -> {
-					return new HtmlCssImageResourceAgent(refKeeper);
-				}).keep();
-			} else if (wrp.getContentType().startsWith("text") || wrp.getContentType().startsWith("TEXT")) {
-				refKeeper.initial(styleRefUrl, () -> {
-					return new HtmlTextResourceAgent(refKeeper);
-				}).keep();
-			} else {
-				refKeeper.initial(styleRefUrl, () -> {
-					return new HtmlBinaryResourceAgent(refKeeper);
-				}).keep();
+		URL styleUrl = keeper.getResourceURL();
+		Set<String> visiting = new HashSet<>(ancestors);
+		visiting.add(styleUrl.toExternalForm());
+		List<CompletableFuture<Void>> refKeeps = new ArrayList<>();
+		CssReferenceTokenizer tokenizer = new CssReferenceTokenizer((relativeURL, imported) -> {
+			return localizeReference(styleUrl, relativeURL, imported, element, visiting, refKeeps);
+		});
+		StringBuilder sb = tokenizer.rewrite(styleCtx);
+		for (CompletableFuture<Void> refKeep : refKeeps) {
+			try {
+				refKeep.join();
+			} catch (Exception e) {
+				ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
 			}
-			matcher.appendReplacement(sb,
-					"url(" + pageTransfer().getCssRefPath() + "/" + refKeeper.getResourceNameOfProundSign() + ")");
-			ProcessLogger.info(
-					"The resource which type:[" + wrp.getContentType() + "] url:[" + styleRefUrl + "] was download.");
 		}
-		matcher.appendTail(sb);
 		return sb.toString();
 	}
 
+	/**
+	 * keep one reference of stylesheet; the reference whose type can not be probed is left as it is,
+	 * the others of the stylesheet are still kept
+	 * @return the local path of reference, or null to leave it as it is
+	 */
+	private String localizeReference(URL styleUrl, String relativeURL, boolean imported, HtmlElement element,
+			Set<String> visiting, List<CompletableFuture<Void>> refKeeps) {
+		URL styleRefUrl = resolveReference(styleUrl, relativeURL);
+		if (styleRefUrl == null) {
+			return null;
+		}
+		String localPath = null;
+		ResourceType refType = imported ? ResourceType.TEXT_CSS : null;
+		HtmlResourceKeeper probeKeeper = null;
+		if (refType == null) {
+			probeKeeper = new HtmlResourceKeeper(pageTransfer(), element, getCssRefDir());
+			try {
+				refType = referenceTypeOf(styleRefUrl, probeKeeper);
+			} catch (IOException e) {
+				ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(),
+						"Failed to probe the reference:" + styleRefUrl + " " + e.getMessage());
+				return null;
+			}
+			if (refType != ResourceType.TEXT_CSS) {
+				localPath = keepReference(styleRefUrl, refType, probeKeeper, refKeeps);
+			}
+		}
+		if (refType == ResourceType.TEXT_CSS) {
+			// nested stylesheet is kept beside current one, so its own references stay valid
+			final HtmlResourceKeeper importKeeper = new HtmlResourceKeeper(pageTransfer(), element,
+					pageTransfer().getCssKeepDir());
+			importKeeper.initial(styleRefUrl, () -> {
+				return new HtmlCssImportResourceAgent(importKeeper, visiting);
+			});
+			importKeeper.setAwaitInFlight(false);
+			if (probeKeeper != null) {
+				// the stylesheet told by the response of probe is not requested again
+				importKeeper.preload(probeKeeper.getPreloadedResponse());
+			}
+			if (!visiting.contains(styleRefUrl.toExternalForm())) {
+				// kept on current thread, it waits for its own references which take the bounded executor
+				importKeeper.keep();
+			}
+			localPath = importKeeper.getResourceName();
+		}
+		ProcessLogger.info("The resource which type:[" + refType + "] url:[" + styleRefUrl + "] was download.");
+		return localPath;
+	}
+
+	private String keepReference(URL styleRefUrl, ResourceType refType, final HtmlResourceKeeper refKeeper,
+			List<CompletableFuture<Void>> refKeeps) {
+		if (refType == ResourceType.IMAGE) {
+			refKeeper.initial(styleRefUrl, () -> {
+				return new HtmlCssImageResourceAgent(refKeeper);
+			});
+		} else if (refType == ResourceType.TEXT) {
+			refKeeper.initial(styleRefUrl, () -> {
+				return new HtmlTextResourceAgent(refKeeper);
+			});
+		} else {
+			refKeeper.initial(styleRefUrl, () -> {
+				return new HtmlBinaryResourceAgent(refKeeper);
+			});
+		}
+		refKeeps.add(submit(refKeeper));
+		return pageTransfer().getCssRefPath() + "/" + refKeeper.getResourceNameOfProundSign();
+	}
+
+	/**
+	 * keep the reference by the reference executor of context, or keep it directly if no executor
+	 * @param refKeeper HtmlResourceKeeper
+	 * @return CompletableFuture
+	 */
+	private CompletableFuture<Void> submit(HtmlResourceKeeper refKeeper) {
+		Optional<ExecutorService> executor = pageTransfer().getContext().getReferenceExecutor();
+		if (executor.isPresent()) {
+			return CompletableFuture.runAsync(refKeeper::keep, executor.get());
+		}
+		refKeeper.keep();
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * resolve the reference by the URL of stylesheet
+	 * @param styleUrl URL of stylesheet
+	 * @param relativeURL the reference in stylesheet
+	 * @return URL or null if the reference should be left as it is, like <code>data:</code>
+	 */
+	URL resolveReference(URL styleUrl, String relativeURL) {
+		String ref = relativeURL.trim();
+		if (ref.isEmpty() || ref.startsWith("#") || ref.regionMatches(true, 0, "data:", 0, 5)) {
+			return null;
+		}
+		try {
+			return UrlUtils.toUrlUnsafe(UrlUtils.resolveUrl(styleUrl, ref));
+		} catch (Exception e) {
+			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * decide the type of css reference by the run-level cache, then the URL suffix, at last the
+	 * content type of its response; the loaded response is handed to the reference keeper so the
+	 * reference is transferred only once
+	 * @param styleRefUrl URL
+	 * @param refKeeper HtmlResourceKeeper
+	 * @return ResourceType
+	 * @throws IOException
+	 */
+	ResourceType referenceTypeOf(URL styleRefUrl, HtmlResourceKeeper refKeeper) throws IOException {
+		TransferContext context = pageTransfer().getContext();
+		ResourceType refType = context.getReferenceType(styleRefUrl);
+		if (refType == null) {
+			refType = ResourceType.ofSuffix(styleRefUrl);
+		}
+		if (refType == null) {
+			WebResponse wrp = keeper.loadWebResponse(styleRefUrl);
+			refType = ResourceType.ofContentType(wrp.getContentType());
+			refKeeper.preload(wrp);
+		}
+		context.putReferenceType(styleRefUrl, refType);
+		return refType;
+	}
+
 	/**
 	 * get css reference resource keep dir
 	 * 
@@ -119,6 +289,11 @@ public class HtmlCssResourceAgent extends HtmlTextResourceAgent {
 		return pageTransfer().getCssRefKeepDir();
 	}
 
+	@Override
+	protected String defaultSuffix() {
+		return ".css";
+	}
+
 	@Override
 	public String resolve(URL url) {
 		String cssName = super.resolve(url);
@@ -24,8 +24,9 @@
 */
 package com.openthinks.others.webpages.agent;
 
-import java.io.File;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.Iterator;
 
@@ -40,6 +41,8 @@ import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.openthinks.libs.utilities.CommonUtilities;
 import com.openthinks.libs.utilities.logger.ProcessLogger;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+import com.openthinks.others.webpages.util.ImageFormat;
+import com.openthinks.others.webpages.util.ResourceNaming;
 import com.openthinks.others.webpages.util.ResourceType;
 
 /**
@@ -58,26 +61,65 @@ public class HtmlImageResourceAgent extends HtmlBinaryResourceAgent {
 		return ResourceType.IMAGE;
 	}
 
+	/**
+	 * keep the original bytes of image directly, unless the normalize images mode is on, which
+	 * decodes and re-encodes the raster image; both read the only one response. The original bytes
+	 * are streamed to the file by the asynchronous transport if it is on
+	 */
 	@Override
 	public void makeKeepToLocal(HtmlElement element) throws IOException {
-		try {
-			WebResponse wrp = keeper.loadWebResponse(keeper.getResourceURL());
-			if ("image/svg+xml".equalsIgnoreCase(wrp.getContentType())) {//issue for svg image
-				throw new Exception("SVG image.");
+		if (!pageTransfer().getContext().isNormalizeImages() && keeper.streamResource(this::storeBinaryResource))
+			return;
+		WebResponse wrp = keeper.loadWebResponse(keeper.getResourceURL());
+		ImageFormat format = ImageFormat.UNKNOWN;
+		try (InputStream ins = wrp.getContentAsStream()) {
+			format = ImageFormat.sniff(ins);
+		}
+		ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), keeper.getResourceURL() + " is " + format);
+		if (pageTransfer().getContext().isNormalizeImages() && format.isRaster()) {
+			try {
+				normalize(wrp, format);
+				return;
+			} catch (Exception e) {//keep the original bytes, e.g. CMYK jpeg
+				ProcessLogger.info(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+			}
+		}
+		storeBinaryResource(wrp.getContentAsStream());
+	}
+
+	/**
+	 * decode the image and encode it again by {@link ImageIO}; the encoded image is stored like others,
+	 * so the kept file is replaced by rename instead of written in place
+	 * @param wrp WebResponse
+	 * @param format ImageFormat
+	 * @throws IOException when failed to decode
+	 */
+	protected void normalize(WebResponse wrp, ImageFormat format) throws IOException {
+		BufferedImage image;
+		String formatName;
+		try (InputStream ins = wrp.getContentAsStream();
+				ImageInputStream iis = ImageIO.createImageInputStream(ins)) {
+			Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName(format.getFormatName());
+			if (!iter.hasNext()) {
+				throw new IOException("No image reader for " + format);
 			}
-			ImageInputStream iis = ImageIO.createImageInputStream(wrp.getContentAsStream());
-			Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
-			if (iter.hasNext()) {
-				ImageReader imageReader = iter.next();
+			ImageReader imageReader = iter.next();
+			try {
 				imageReader.setInput(iis);
-				ImageIO.write(imageReader.read(0), imageReader.getFormatName(), new File(keeper.getResourcePath()));
+				image = imageReader.read(0);
+				formatName = imageReader.getFormatName();
+			} finally {
+				imageReader.dispose();
 			}
-		} catch (Exception e) {
-			ProcessLogger.info(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
-			WebResponse wrp = keeper.loadWebResponse(keeper.getResourceURL());
-			storeBinaryResource(wrp.getContentAsStream());
 		}
-
+		if (!ImageIO.getImageWritersByFormatName(formatName).hasNext()) {
+			throw new IOException("No image writer for " + format);
+		}
+		storeStreamResource((out) -> {
+			if (!ImageIO.write(image, formatName, out)) {
+				throw new IOException("No image writer for " + format);
+			}
+		});
 	}
 
 	@Override
@@ -86,11 +128,16 @@ public class HtmlImageResourceAgent extends HtmlBinaryResourceAgent {
 	}
 
 	@Override
-	public String resolve(URL url) {
+	protected String defaultSuffix() {
+		return ".jpg";
+	}
+
+	@Override
+	protected String resolveLegacy(URL url) {
 		String imgName = url.toString();
 		int start = imgName.lastIndexOf("/");
 		imgName = imgName.substring(start + 1);
-		imgName = imgName.replaceAll("[^0-9A-Za-z_\\-\\.]", "_");
+		imgName = ResourceNaming.UNSAFE_CHAR.matcher(imgName).replaceAll("_");
 		String imgSuffix = ".jpg";
 		int end = imgName.lastIndexOf(".");
 		if (end != -1) {
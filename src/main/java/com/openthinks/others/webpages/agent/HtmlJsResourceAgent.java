@@ -25,10 +25,12 @@
 package com.openthinks.others.webpages.agent;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
 import com.openthinks.others.webpages.util.ResourceType;
+import com.openthinks.others.webpages.util.TextCharset;
 
 /**
  * The javascript resource agent of HTML page
@@ -51,8 +53,22 @@ public class HtmlJsResourceAgent extends HtmlTextResourceAgent {
 		super.makeKeepToLocal(element);
 	}
 
+	@Override
+	protected String defaultSuffix() {
+		return ".js";
+	}
+
+	/**
+	 * the kept script has the original bytes, which the kept page in UTF-8 reads in the wrong charset,
+	 * so the <code>charset</code> of element is set to the charset it was kept in; it is left as it is
+	 * when the script starts with byte order mark or its charset is unknown
+	 */
 	@Override
 	public void makeChangeToLocal(HtmlElement element) {
+		Charset charset = getKeptCharset();
+		if (charset != null && (element.hasAttribute("charset") || !TextCharset.isUtf8Compatible(charset))) {
+			element.setAttribute("charset", charset.name());
+		}
 		element.setAttribute("src", pageTransfer().getJsPath() + "/" + keeper.getResourceNameOfProundSign());
 	}
 }
@@ -24,13 +24,22 @@
 */
 package com.openthinks.others.webpages.agent;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
+import com.gargoylesoftware.htmlunit.WebResponse;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.openthinks.libs.utilities.logger.ProcessLogger;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
+import com.openthinks.others.webpages.metrics.CrawlMetrics;
+import com.openthinks.others.webpages.util.ContentStore;
+import com.openthinks.others.webpages.util.HtmlPageSerializer;
+import com.openthinks.others.webpages.util.ResourceInfo;
 import com.openthinks.others.webpages.util.ResourceType;
 
 /**
@@ -39,6 +48,7 @@ import com.openthinks.others.webpages.util.ResourceType;
  *
  */
 public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
 
 	public HtmlPageResourceAgent(HtmlResourceKeeper keeper) {
 		super(keeper);
@@ -47,16 +57,20 @@ public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
 	@Override
 	public void makeKeepToLocal(HtmlElement element) throws IOException {
 		HtmlPage htmlPage = keeper.getHtmlPage();
+		recordValidators(htmlPage);
 		processAnchors(htmlPage);
 		processOthers(htmlPage);
+		processCharset(htmlPage);
 		keeper.doAdditionalProcessor(getClass());
-		String html = htmlPage.asXml();
-		//ProcessLogger.debug(html);
-		html = keeper.doAdditionalProcessor(getClass(), html);
-		//fix XML error
-		html = html.replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", "<!DOCTYPE html>");
-		//ProcessLogger.debug(html);
-		storeTextResource(html);
+		//serialize the page into file directly, without the whole page in memory
+		storeStreamResource((out) -> {
+			long start = System.nanoTime();
+			Writer fileWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+			try (Writer writer = keeper.doAdditionalProcessor(getClass(), fileWriter)) {
+				HtmlPageSerializer.write(htmlPage, writer);
+			}
+			metrics().record(CrawlMetrics.AS_XML, getResourceType(), start);
+		});
 	}
 
 	@Override
@@ -64,6 +78,27 @@ public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
 		return ResourceType.TEXT_HTML;
 	}
 
+	/**
+	 * the pages are unique to the book, they are never linked to the content store
+	 */
+	@Override
+	protected ContentStore contentStore() {
+		return null;
+	}
+
+	/**
+	 * the page is kept from its own response, which has the validators to revalidate it by
+	 * @param htmlPage HtmlPage
+	 */
+	void recordValidators(HtmlPage htmlPage) {
+		ResourceInfo info = keeper.resourceInfo();
+		if (info == null || !htmlPage.getUrl().equals(info.getResourceURL()))
+			return;
+		WebResponse pageResponse = htmlPage.getWebResponse();
+		info.setEtag(pageResponse.getResponseHeaderValue("ETag"));
+		info.setLastModified(pageResponse.getResponseHeaderValue("Last-Modified"));
+	}
+
 	void processAnchors(HtmlPage htmlPage) {
 		//		htmlPage.getAnchors().stream().filter((HtmlAnchor anchor) -> {
 		//			return anchor.hasAttribute("href") && !anchor.getAttribute("href").isEmpty();
@@ -102,6 +137,20 @@ public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
 
 	}
 
+	/**
+	 * the page is kept in UTF-8, declare it in the meta elements
+	 * @param htmlPage HtmlPage
+	 */
+	void processCharset(HtmlPage htmlPage) {
+		htmlPage.getElementsByTagName("meta").forEach((meta) -> {
+			if (meta.hasAttribute("charset")) {
+				meta.setAttribute("charset", StandardCharsets.UTF_8.name());
+			} else if ("content-type".equalsIgnoreCase(meta.getAttribute("http-equiv"))) {
+				meta.setAttribute("content", "text/html; charset=" + StandardCharsets.UTF_8.name());
+			}
+		});
+	}
+
 	void processOthers(HtmlPage htmlPage) {
 		// process tag pre text content trim blank space
 		htmlPage.getElementsByTagName("pre").forEach((domEl) -> {
@@ -112,8 +161,8 @@ public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
 					buff.deleteCharAt(0);
 				}
 				int len = text.length();
-				if (text.lastIndexOf("'") == (len - 1) || text.lastIndexOf("\"") == (len - 1)) {
-					buff.deleteCharAt(len - 1);
+				if ((text.lastIndexOf("'") == (len - 1) || text.lastIndexOf("\"") == (len - 1)) && buff.length() > 0) {
+					buff.deleteCharAt(buff.length() - 1);
 				}
 			}
 			domEl.setTextContent(buff.toString().trim());
@@ -123,9 +172,12 @@ public class HtmlPageResourceAgent extends HtmlTextResourceAgent {
 
 	}
 
+	/**
+	 * the pages keep the legacy names, which the links between pages are rewritten to
+	 */
 	@Override
 	public String resolve(URL url) {
-		String rst = super.resolve(url);
+		String rst = resolveLegacy(url);
 		if (rst == null || "".equals(rst)) {
 			rst = "index.html";
 		}
@@ -25,18 +25,28 @@
 package com.openthinks.others.webpages.agent;
 
 import java.io.BufferedInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import com.gargoylesoftware.htmlunit.WebResponse;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.openthinks.libs.utilities.CommonUtilities;
 import com.openthinks.libs.utilities.logger.ProcessLogger;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
 import com.openthinks.others.webpages.keeper.ResourceKeep;
+import com.openthinks.others.webpages.metrics.CrawlMetrics;
 import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+import com.openthinks.others.webpages.util.ContentStore;
+import com.openthinks.others.webpages.util.ResourceInfo;
+import com.openthinks.others.webpages.util.ResourceNaming;
+import com.openthinks.others.webpages.util.ResourceWriter;
+import com.openthinks.others.webpages.util.TextCharset;
 
 /**
  * The resource agent for HTML page
@@ -62,40 +72,181 @@ public abstract class HtmlResourceAgent implements ResourceAgent {
 	}
 
 	/**
-	 * persist the text to local file
+	 * persist the text to local file in UTF-8, the charset which the kept pages are declared in
 	 * @param textContent String
 	 */
 	public void storeTextResource(String textContent) {
-		try (PrintWriter writer = new PrintWriter(new FileOutputStream(keeper.getResourcePath()))) {
-			writer.write(textContent);
+		long start = System.nanoTime();
+		try (InputStream in = new ByteArrayInputStream(textContent.getBytes(StandardCharsets.UTF_8))) {
+			store(in);
 		} catch (Exception e) {
 			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
 		}
+		recordWrite(start);
 	}
 
 	/**
-	 * persist the {@link InputStream} to local file
+	 * persist the {@link InputStream} to local file, the stream will be closed
 	 * @param ins {@link InputStream}
+	 * @see ResourceWriter#writeIfChanged(InputStream, File, ContentStore)
 	 */
 	public void storeBinaryResource(InputStream ins) {
-		byte[] buff = new byte[1024 * 10];
-		try (FileOutputStream fileOutputStream = new FileOutputStream(keeper.getResourcePath());
-				BufferedInputStream bufferedInputStream = new BufferedInputStream(ins)) {
-			int size = -1;
-			while ((size = bufferedInputStream.read(buff)) != -1) {
-				fileOutputStream.write(buff, 0, size);
-			}
+		long start = System.nanoTime();
+		try (InputStream in = ins) {
+			store(in);
+		} catch (IOException e) {
+			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+		}
+		recordWrite(start);
+	}
+
+	/**
+	 * persist the content written by the given action to local file
+	 * @param action the writing of content, the stream is not buffered
+	 * @see ResourceWriter#writeIfChanged(File, ContentStore, ResourceWriter.StreamAction)
+	 */
+	public void storeStreamResource(ResourceWriter.StreamAction action) {
+		long start = System.nanoTime();
+		try {
+			countUnchanged(ResourceWriter.writeIfChanged(new File(keeper.getResourcePath()), contentStore(), action));
 		} catch (IOException e) {
 			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
 		}
+		recordWrite(start);
+	}
+
+	/**
+	 * the file kept by previous run is replaced only when its content changed
+	 */
+	private void store(InputStream in) throws IOException {
+		countUnchanged(ResourceWriter.writeIfChanged(in, new File(keeper.getResourcePath()), contentStore()));
+	}
+
+	/**
+	 * the store which the kept file is linked to
+	 * @return ContentStore or null to keep the file by itself
+	 */
+	protected ContentStore contentStore() {
+		return pageTransfer().getContext().getContentStore().orElse(null);
 	}
 
+	private void countUnchanged(boolean written) {
+		if (!written) {
+			metrics().counter(CrawlMetrics.FILES_UNCHANGED, getResourceType()).increment();
+		}
+	}
+
+	/**
+	 * the metrics of current run
+	 * @return CrawlMetrics
+	 */
+	protected CrawlMetrics metrics() {
+		return pageTransfer().getContext().getMetrics();
+	}
+
+	private void recordWrite(long startNanos) {
+		CrawlMetrics metrics = metrics();
+		metrics.record(CrawlMetrics.WRITE_FILE, getResourceType(), startNanos);
+		metrics.counter(CrawlMetrics.BYTES_WRITTEN, getResourceType()).add(new File(keeper.getResourcePath()).length());
+	}
+
+	/**
+	 * the name by the resource naming of run, or by {@link #resolveLegacy(URL)} if the naming leaves it
+	 * to agent
+	 */
+	@Override
+	public String resolve(URL url) {
+		String name = resourceNaming().nameOf(url, defaultSuffix());
+		return name != null ? name : resolveLegacy(url);
+	}
+
+	/**
+	 * the reference of resource with the fragment of URL, like <code>font.svg#icon</code>
+	 */
+	@Override
+	public String resolveOfPoundSign(URL url) {
+		if (resourceNaming() == ResourceNaming.LEGACY)
+			return ResourceAgent.super.resolveOfPoundSign(url);
+		String ref = url.getRef();
+		return ref == null ? resolve(url) : resolve(url) + "#" + ref;
+	}
+
+	/**
+	 * the name by the last segment of URL, which is the naming before {@link ResourceNaming}
+	 * @param url URL
+	 * @return String
+	 */
+	protected String resolveLegacy(URL url) {
+		return ResourceAgent.super.resolve(url);
+	}
+
+	/**
+	 * the suffix of the resource whose URL has no extension
+	 * @return the suffix like <code>.jpg</code>, null for none
+	 */
+	protected String defaultSuffix() {
+		return null;
+	}
+
+	/**
+	 * the resource naming of run, {@link ResourceNaming#LEGACY} if the agent is not bound to a transfer
+	 * @return ResourceNaming
+	 */
+	protected ResourceNaming resourceNaming() {
+		if (keeper == null || pageTransfer() == null || pageTransfer().getContext() == null)
+			return ResourceNaming.LEGACY;
+		return pageTransfer().getContext().getResourceNaming();
+	}
+
+	/**
+	 * the charset which the referring page reads the resource in, when the resource does not declare
+	 * its own: the <code>charset</code> attribute of element, then the charset declared by the page
+	 * @param element the element which references the resource
+	 * @return Charset or null if unknown
+	 */
+	protected Charset referringCharsetOf(HtmlElement element) {
+		if (element != null && element.hasAttribute("charset")) {
+			Charset charset = TextCharset.toCharset(element.getAttribute("charset"));
+			if (charset != null)
+				return charset;
+		}
+		HtmlPage page = keeper.getHtmlPage();
+		return page == null ? null : page.getWebResponse().getContentCharsetOrNull();
+	}
+
+	/**
+	 * keep the text byte by byte, it is never decoded since nothing in it is rewritten; the charset it
+	 * is read in is recorded with the resource, see {@link #getKeptCharset()}
+	 */
 	@Override
 	public void makeKeepToLocal(HtmlElement element) throws IOException {
 		WebResponse wrp = this.keeper.loadWebResponse(this.keeper.getResourceURL());
-		//TODO charset
-		String text = wrp.getContentAsString();
-		storeTextResource(text);
+		BufferedInputStream in = new BufferedInputStream(wrp.getContentAsStream());
+		Charset charset = null;
+		try {
+			if (TextCharset.ofBom(in) == null) {
+				charset = TextCharset.ofHeaders(wrp);
+				if (charset == null)
+					charset = referringCharsetOf(element);
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		ResourceInfo info = this.keeper.resourceInfo();
+		if (info != null)
+			info.setCharset(charset == null ? null : charset.name());
+		storeBinaryResource(in);
+	}
+
+	/**
+	 * the charset of the text kept by {@link #makeKeepToLocal(HtmlElement)}, which is recorded with the
+	 * resource, so it is known as well when the text was kept by another page or by previous run
+	 * @return Charset or null if the text starts with byte order mark, or its charset is unknown
+	 */
+	protected Charset getKeptCharset() {
+		ResourceInfo info = this.keeper.resourceInfo();
+		return info == null ? null : TextCharset.toCharset(info.getCharset());
 	}
 
 }
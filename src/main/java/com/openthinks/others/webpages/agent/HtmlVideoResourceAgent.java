@@ -51,7 +51,12 @@ public class HtmlVideoResourceAgent extends HtmlBinaryResourceAgent {
 	}
 
 	@Override
-	public String resolve(URL url) {
+	protected String defaultSuffix() {
+		return ".mp4";
+	}
+
+	@Override
+	protected String resolveLegacy(URL url) {
 		String videoName = url.toString();
 		int start = videoName.lastIndexOf("/");
 		videoName = videoName.substring(start + 1);
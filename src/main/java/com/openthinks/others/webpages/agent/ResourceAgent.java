@@ -30,6 +30,7 @@ import java.net.URL;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.openthinks.others.webpages.keeper.HtmlResourceKeeper;
 import com.openthinks.others.webpages.keeper.ResourceKeep;
+import com.openthinks.others.webpages.util.ResourceNaming;
 import com.openthinks.others.webpages.util.ResourceType;
 
 /**
@@ -91,7 +92,7 @@ public interface ResourceAgent {
 		if (end != -1) {
 			name = name.substring(0, end);
 		}
-		name = name.replaceAll("[^0-9A-Za-z_\\-\\.]+", "_");
+		name = ResourceNaming.UNSAFE_CHARS.matcher(name).replaceAll("_");
 		return name;
 	}
 
@@ -113,7 +114,7 @@ public interface ResourceAgent {
 			name = name.substring(start + 1);
 		*/
 		name = name.substring(start + 1);
-		name = name.replaceAll("[^0-9A-Za-z_\\-\\.]+", "_");
+		name = ResourceNaming.UNSAFE_CHARS.matcher(name).replaceAll("_");
 		return name;
 	}
 }
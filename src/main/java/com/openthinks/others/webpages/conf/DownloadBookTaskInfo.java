@@ -4,10 +4,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.InvalidPropertiesFormatException;
 import java.util.Optional;
 import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.util.ResourceWriter;
 
 /**
  * 
@@ -96,14 +101,18 @@ public class DownloadBookTaskInfo extends Config {
   public static final DownloadBookTaskInfo readXML(File file)
       throws InvalidPropertiesFormatException, IOException {
     DownloadBookTaskInfo instance = DownloadBookTaskInfo.create();
-    instance.loadFromXML(new FileInputStream(file));
+    try (InputStream in = new FileInputStream(file)) {
+      instance.loadFromXML(in);
+    }
     instance.setStoreFile(file);
     return instance;
   }
 
   public static final DownloadBookTaskInfo readProps(File file) throws IOException {
     DownloadBookTaskInfo instance = DownloadBookTaskInfo.create();
-    instance.load(new FileInputStream(file));
+    try (InputStream in = new FileInputStream(file)) {
+      instance.load(in);
+    }
     instance.setStoreFile(file);
     return instance;
   }
@@ -136,26 +145,37 @@ public class DownloadBookTaskInfo extends Config {
     return true;
   }
 
-  public final boolean keep() {
+  public final synchronized boolean keep() {
     if (this.storeFile != null) {
       Date updateTime = new Date();
       String fileName = this.storeFile.getName();
       String comment = updateTime.toString();
+      if (!fileName.endsWith(CONFIG_XML) && !fileName.endsWith(CONFIG_PROPERTIES)) {
+        return false;
+      }
+      // write beside the task file and rename, a crash never leaves a truncated task file
+      Path tempPath = ResourceWriter.tempPathOf(storeFile);
       try {
-        if (fileName.endsWith(CONFIG_XML)) {
-          this.storeToXML(new FileOutputStream(storeFile), comment);
-        } else if (fileName.endsWith(CONFIG_PROPERTIES)) {
-          this.store(new FileOutputStream(storeFile), comment);
-        } else {
-          return false;
+        try (OutputStream out = new FileOutputStream(tempPath.toFile())) {
+          if (fileName.endsWith(CONFIG_XML)) {
+            this.storeToXML(out, comment);
+          } else {
+            this.store(out, comment);
+          }
         }
+        ResourceWriter.moveAtomically(tempPath, storeFile.toPath());
         return true;
       } catch (IOException e) {
         ProcessLogger.error("Failed to save task configuration to file:{0} by reason:{1}", fileName,
             e);
+        try {
+          Files.deleteIfExists(tempPath);
+        } catch (IOException ignored) {
+        }
         return false;
       }
     }
     return false;
   }
+
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.InvalidPropertiesFormatException;
+import java.util.Locale;
 import java.util.Optional;
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.openthinks.libs.utilities.Result;
@@ -120,7 +121,68 @@ public class WebPagesConfigure extends Config {
   // group task which need go to download book
   @ConfigDesc("[Option when downloading page was configured]sub tasks configure directory")
   public static final String DOWNLOADGROUPTASKDIR = "group-task-dir";
+  @ConfigDesc("[Option]the max number of group tasks which download their books concurrently")
+  public static final String GROUP_WORKER_COUNT = "group-worker-count";
+  public static final int DEFAULT_GROUP_WORKER_COUNT = 1;
+  @ConfigDesc("[Option]the max number of group tasks which download from the same host concurrently")
+  public static final String GROUP_PER_HOST_LIMIT = "group-per-host-limit";
+  public static final int DEFAULT_GROUP_PER_HOST_LIMIT = 2;
+  @ConfigDesc("[Option]share one login session among group tasks instead of logging in for each book")
+  public static final String GROUP_SHARE_LOGIN = "group-share-login";
+  @ConfigDesc("[Option]keep the cookies of login session in the save directory, the later books and runs reuse them instead of the form login")
+  public static final String KEEP_SESSION = "keep-session";
   public static final long DEFAULT_SESSION_TIMEOUT = 30 * 60 * 1000;
+  @ConfigDesc("[Option]the number of workers which download the pages of catalog concurrently")
+  public static final String CATALOG_WORKER_COUNT = "catalog-worker-count";
+  public static final int DEFAULT_CATALOG_WORKER_COUNT = 1;
+  @ConfigDesc("[Option]the number of next pages loaded ahead while the resources of current chain page are downloading, 0 means no prefetch")
+  public static final String CHAIN_PREFETCH_DEPTH = "chain-prefetch-depth";
+  public static final int DEFAULT_CHAIN_PREFETCH_DEPTH = 0;
+  @ConfigDesc("[Option]the number of threads which download the resources of page concurrently")
+  public static final String RESOURCE_WORKER_COUNT = "resource-worker-count";
+  public static final int DEFAULT_RESOURCE_WORKER_COUNT = 1;
+  @ConfigDesc("[Option]the max concurrent resource requests to the same host")
+  public static final String RESOURCE_PER_HOST_LIMIT = "resource-per-host-limit";
+  public static final int DEFAULT_RESOURCE_PER_HOST_LIMIT = 4;
+  @ConfigDesc("[Option]keep the manifest of downloaded resources in book directory, which lets the restarted download skip them")
+  public static final String KEEP_MANIFEST = "keep-manifest";
+  @ConfigDesc("[Option]decode and re-encode the downloaded images instead of keeping their original bytes")
+  public static final String NORMALIZE_IMAGES = "normalize-images";
+  @ConfigDesc("[Option]the seconds between two summary lines of crawl metrics in log, 0 means no summary")
+  public static final String METRICS_SUMMARY_INTERVAL = "metrics-summary-interval";
+  public static final int DEFAULT_METRICS_SUMMARY_INTERVAL = 60;
+  @ConfigDesc("[Option]write the crawl metrics report crawl-metrics.json into book directory at the end of run")
+  public static final String METRICS_REPORT = "metrics-report";
+  @ConfigDesc("[Option]the local port of HTTP endpoint for live status and stop, 0 means no endpoint; the books of group task downloading at a time take the following ports in turn")
+  public static final String STATUS_PORT = "status-port";
+  @ConfigDesc("[Option]run the JavaScript of catalog and content pages, the login page always runs it")
+  public static final String PAGE_JAVASCRIPT = "page-javascript";
+  @ConfigDesc("[Option]apply the CSS of catalog and content pages, the login page always applies it")
+  public static final String PAGE_CSS = "page-css";
+  @ConfigDesc("[Option]build catalog and content pages from the raw response by HTML parser only, without JavaScript and CSS")
+  public static final String PAGE_PARSER_ONLY = "page-parser-only";
+  @ConfigDesc("[Option]the max number of responses and stylesheets cached by each web client, when there is no shared response cache")
+  public static final String CLIENT_CACHE_SIZE = "client-cache-size";
+  public static final int DEFAULT_CLIENT_CACHE_SIZE = 16;
+  @ConfigDesc("[Option]the megabytes of HTTP responses cached in memory and shared by all web clients, 0 means no shared cache")
+  public static final String RESPONSE_CACHE_SIZE = "response-cache-size";
+  public static final int DEFAULT_RESPONSE_CACHE_SIZE = 32;
+  @ConfigDesc("[Option]the local directory which keeps the responses evicted from the shared cache, empty means drop them")
+  public static final String RESPONSE_CACHE_SPILL_DIR = "response-cache-spill-dir";
+  @ConfigDesc("[Option]the megabytes of responses kept in the spill directory")
+  public static final String RESPONSE_CACHE_SPILL_SIZE = "response-cache-spill-size";
+  public static final int DEFAULT_RESPONSE_CACHE_SPILL_SIZE = 256;
+  @ConfigDesc("[Option]revalidate the pages and resources kept by previous run and only rewrite the changed files, it needs the keep manifest")
+  public static final String INCREMENTAL = "incremental";
+  @ConfigDesc("[Option]keep each resource once in the content store by its SHA-256 and link the book files to it: none, hardlink or symlink; the linked files must not be edited in place")
+  public static final String CONTENT_STORE = "content-store";
+  public static final String CONTENT_STORE_NONE = "none";
+  @ConfigDesc("[Option]the directory of content store, empty means the .keeper-store directory in the save dir")
+  public static final String CONTENT_STORE_DIR = "content-store-dir";
+  @ConfigDesc("[Option]the naming of kept resources: legacy names them by the last segment of URL, hashed adds the short hash of URL so the names never collide; or the class name of a ResourceNaming")
+  public static final String RESOURCE_NAMING = "resource-naming";
+  @ConfigDesc("[Option]download the images, fonts and videos by the non-blocking HTTP client which streams them to disk, instead of the web client")
+  public static final String ASYNC_TRANSPORT = "async-transport";
 
   protected transient DownloadBookTaskInfo bookTaskInfo = null;
 
@@ -373,6 +435,63 @@ public class WebPagesConfigure extends Config {
     setProperty(DOWNLOADGROUPTASKDIR, value);
   }
 
+  /**
+   * the max number of group tasks downloading at a time
+   * 
+   * @return count, at least 1
+   */
+  public int getGroupWorkerCount() {
+    return Math.max(1, getIntProp(GROUP_WORKER_COUNT, DEFAULT_GROUP_WORKER_COUNT));
+  }
+
+  public void setGroupWorkerCount(int count) {
+    setProperty(GROUP_WORKER_COUNT, String.valueOf(count));
+  }
+
+  /**
+   * the max number of group tasks downloading from the same host at a time
+   * 
+   * @return count, at least 1
+   */
+  public int getGroupPerHostLimit() {
+    return Math.max(1, getIntProp(GROUP_PER_HOST_LIMIT, DEFAULT_GROUP_PER_HOST_LIMIT));
+  }
+
+  public void setGroupPerHostLimit(int limit) {
+    setProperty(GROUP_PER_HOST_LIMIT, String.valueOf(limit));
+  }
+
+  /**
+   * share one login session among group tasks or not, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isGroupShareLogin() {
+    Optional<String> opl = getProp(GROUP_SHARE_LOGIN);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Boolean.valueOf(opl.get().trim());
+    }
+    return true;
+  }
+
+  public void setGroupShareLogin(boolean value) {
+    setProperty(GROUP_SHARE_LOGIN, String.valueOf(value));
+  }
+
+  /**
+   * keep the cookies of login session in a file or not, default is false
+   * 
+   * @return true or false
+   */
+  public boolean isKeepSession() {
+    Optional<String> opl = getProp(KEEP_SESSION);
+    return opl.isPresent() && Boolean.valueOf(opl.get().trim());
+  }
+
+  public void setKeepSession(boolean value) {
+    setProperty(KEEP_SESSION, String.valueOf(value));
+  }
+
   public void setBookTaskInfo(final DownloadBookTaskInfo bookTaskInfo) {
     this.bookTaskInfo = bookTaskInfo;
   }
@@ -454,4 +573,320 @@ public class WebPagesConfigure extends Config {
   public void setSessionTimeout(long timeout) {
     setProperty(SESSION_TIMEOUT, String.valueOf(timeout));
   }
+
+  /**
+   * the number of workers for downloading catalog pages, each worker owns its own
+   * {@link com.gargoylesoftware.htmlunit.WebClient}
+   * 
+   * @return worker count, at least 1
+   */
+  public int getCatalogWorkerCount() {
+    return Math.max(1, getIntProp(CATALOG_WORKER_COUNT, DEFAULT_CATALOG_WORKER_COUNT));
+  }
+
+  public void setCatalogWorkerCount(int count) {
+    setProperty(CATALOG_WORKER_COUNT, String.valueOf(count));
+  }
+
+  /**
+   * the number of next chain pages loaded ahead by another client, 0 means load them one by one
+   * 
+   * @return prefetch depth, at least 0
+   */
+  public int getChainPrefetchDepth() {
+    return Math.max(0, getIntProp(CHAIN_PREFETCH_DEPTH, DEFAULT_CHAIN_PREFETCH_DEPTH));
+  }
+
+  public void setChainPrefetchDepth(int depth) {
+    setProperty(CHAIN_PREFETCH_DEPTH, String.valueOf(depth));
+  }
+
+  /**
+   * the number of threads for downloading page resources, 1 means download them one by one
+   * 
+   * @return thread count, at least 1
+   */
+  public int getResourceWorkerCount() {
+    return Math.max(1, getIntProp(RESOURCE_WORKER_COUNT, DEFAULT_RESOURCE_WORKER_COUNT));
+  }
+
+  public void setResourceWorkerCount(int count) {
+    setProperty(RESOURCE_WORKER_COUNT, String.valueOf(count));
+  }
+
+  /**
+   * the max concurrent resource requests to the same host, less than 1 means no limit
+   * 
+   * @return limit of each host
+   */
+  public int getResourcePerHostLimit() {
+    return getIntProp(RESOURCE_PER_HOST_LIMIT, DEFAULT_RESOURCE_PER_HOST_LIMIT);
+  }
+
+  public void setResourcePerHostLimit(int limit) {
+    setProperty(RESOURCE_PER_HOST_LIMIT, String.valueOf(limit));
+  }
+
+  /**
+   * keep the manifest of downloaded resources or not, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isKeepManifest() {
+    Optional<String> opl = getProp(KEEP_MANIFEST);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Boolean.valueOf(opl.get().trim());
+    }
+    return true;
+  }
+
+  public void setKeepManifest(boolean value) {
+    setProperty(KEEP_MANIFEST, String.valueOf(value));
+  }
+
+  /**
+   * decode and re-encode the downloaded images or not, default is false
+   * 
+   * @return true or false
+   */
+  public boolean isNormalizeImages() {
+    Optional<String> opl = getProp(NORMALIZE_IMAGES);
+    return opl.isPresent() && Boolean.valueOf(opl.get().trim());
+  }
+
+  public void setNormalizeImages(boolean value) {
+    setProperty(NORMALIZE_IMAGES, String.valueOf(value));
+  }
+
+  /**
+   * the seconds between two summary lines of crawl metrics, 0 means no summary
+   * 
+   * @return seconds
+   */
+  public int getMetricsSummaryInterval() {
+    return Math.max(0, getIntProp(METRICS_SUMMARY_INTERVAL, DEFAULT_METRICS_SUMMARY_INTERVAL));
+  }
+
+  public void setMetricsSummaryInterval(int seconds) {
+    setProperty(METRICS_SUMMARY_INTERVAL, String.valueOf(seconds));
+  }
+
+  /**
+   * write the crawl metrics report at the end of run or not, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isMetricsReport() {
+    Optional<String> opl = getProp(METRICS_REPORT);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Boolean.valueOf(opl.get().trim());
+    }
+    return true;
+  }
+
+  public void setMetricsReport(boolean value) {
+    setProperty(METRICS_REPORT, String.valueOf(value));
+  }
+
+  /**
+   * the port of local status endpoint, which is bound to loopback address only
+   * 
+   * @return port, 0 means no endpoint
+   */
+  public int getStatusPort() {
+    return Math.max(0, getIntProp(STATUS_PORT, 0));
+  }
+
+  public void setStatusPort(int port) {
+    setProperty(STATUS_PORT, String.valueOf(port));
+  }
+
+  /**
+   * run the JavaScript of catalog and content pages or not, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isPageJavaScript() {
+    Optional<String> opl = getProp(PAGE_JAVASCRIPT);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Boolean.valueOf(opl.get().trim());
+    }
+    return true;
+  }
+
+  public void setPageJavaScript(boolean value) {
+    setProperty(PAGE_JAVASCRIPT, String.valueOf(value));
+  }
+
+  /**
+   * apply the CSS of catalog and content pages or not, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isPageCss() {
+    Optional<String> opl = getProp(PAGE_CSS);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Boolean.valueOf(opl.get().trim());
+    }
+    return true;
+  }
+
+  public void setPageCss(boolean value) {
+    setProperty(PAGE_CSS, String.valueOf(value));
+  }
+
+  /**
+   * build catalog and content pages by HTML parser only or not, default is false
+   * 
+   * @return true or false
+   */
+  public boolean isPageParserOnly() {
+    Optional<String> opl = getProp(PAGE_PARSER_ONLY);
+    return opl.isPresent() && Boolean.valueOf(opl.get().trim());
+  }
+
+  public void setPageParserOnly(boolean value) {
+    setProperty(PAGE_PARSER_ONLY, String.valueOf(value));
+  }
+
+  /**
+   * the max entries of the cache in each web client
+   * 
+   * @return cache size, at least 0
+   */
+  public int getClientCacheSize() {
+    return Math.max(0, getIntProp(CLIENT_CACHE_SIZE, DEFAULT_CLIENT_CACHE_SIZE));
+  }
+
+  public void setClientCacheSize(int size) {
+    setProperty(CLIENT_CACHE_SIZE, String.valueOf(size));
+  }
+
+  /**
+   * the megabytes of the response cache shared by all web clients
+   * 
+   * @return megabytes, 0 means no shared cache
+   */
+  public int getResponseCacheSize() {
+    return Math.max(0, getIntProp(RESPONSE_CACHE_SIZE, DEFAULT_RESPONSE_CACHE_SIZE));
+  }
+
+  public void setResponseCacheSize(int megabytes) {
+    setProperty(RESPONSE_CACHE_SIZE, String.valueOf(megabytes));
+  }
+
+  /**
+   * the directory which keeps the responses evicted from the shared cache
+   * 
+   * @return Optional of {@link File}
+   */
+  public Optional<File> getResponseCacheSpillDir() {
+    Optional<String> opl = getProp(RESPONSE_CACHE_SPILL_DIR);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Optional.of(new File(opl.get().trim()));
+    }
+    return Optional.empty();
+  }
+
+  public void setResponseCacheSpillDir(String dir) {
+    setProperty(RESPONSE_CACHE_SPILL_DIR, dir);
+  }
+
+  /**
+   * the megabytes of responses kept in the spill directory
+   * 
+   * @return megabytes, at least 0
+   */
+  public int getResponseCacheSpillSize() {
+    return Math.max(0, getIntProp(RESPONSE_CACHE_SPILL_SIZE, DEFAULT_RESPONSE_CACHE_SPILL_SIZE));
+  }
+
+  public void setResponseCacheSpillSize(int megabytes) {
+    setProperty(RESPONSE_CACHE_SPILL_SIZE, String.valueOf(megabytes));
+  }
+
+  /**
+   * revalidate the kept pages and resources by conditional requests or not, default is false
+   * 
+   * @return true or false
+   */
+  public boolean isIncremental() {
+    Optional<String> opl = getProp(INCREMENTAL);
+    return opl.isPresent() && Boolean.valueOf(opl.get().trim());
+  }
+
+  public void setIncremental(boolean value) {
+    setProperty(INCREMENTAL, String.valueOf(value));
+  }
+
+  /**
+   * the link from book files to the content store, default is none
+   * 
+   * @return none, hardlink or symlink in lower case
+   */
+  public String getContentStore() {
+    Optional<String> opl = getProp(CONTENT_STORE);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return opl.get().trim().toLowerCase(Locale.ROOT);
+    }
+    return CONTENT_STORE_NONE;
+  }
+
+  public void setContentStore(String value) {
+    setProperty(CONTENT_STORE, value);
+  }
+
+  public Optional<File> getContentStoreDir() {
+    Optional<String> opl = getProp(CONTENT_STORE_DIR);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return Optional.of(new File(opl.get().trim()));
+    }
+    return Optional.empty();
+  }
+
+  public void setContentStoreDir(String dir) {
+    setProperty(CONTENT_STORE_DIR, dir);
+  }
+
+  /**
+   * the naming of kept resources, default is legacy
+   * 
+   * @return legacy, hashed or the class name of naming
+   */
+  public String getResourceNaming() {
+    Optional<String> opl = getProp(RESOURCE_NAMING);
+    if (opl.isPresent() && !opl.get().trim().isEmpty()) {
+      return opl.get().trim();
+    }
+    return "legacy";
+  }
+
+  public void setResourceNaming(String value) {
+    setProperty(RESOURCE_NAMING, value);
+  }
+
+  /**
+   * download the resources which need no DOM by the asynchronous transport or not, default is false
+   * 
+   * @return true or false
+   */
+  public boolean isAsyncTransport() {
+    Optional<String> opl = getProp(ASYNC_TRANSPORT);
+    return opl.isPresent() && Boolean.valueOf(opl.get().trim());
+  }
+
+  public void setAsyncTransport(boolean value) {
+    setProperty(ASYNC_TRANSPORT, String.valueOf(value));
+  }
+
+  protected int getIntProp(String propertyName, int defaultValue) {
+    Optional<String> opl = getProp(propertyName);
+    if (opl.isPresent()) {
+      try {
+        return Integer.valueOf(opl.get().trim());
+      } catch (NumberFormatException e) {
+      }
+    }
+    return defaultValue;
+  }
 }
@@ -27,6 +27,8 @@ package com.openthinks.others.webpages.keeper;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import com.gargoylesoftware.htmlunit.WebResponse;
 import com.openthinks.libs.utilities.CommonUtilities;
@@ -41,6 +43,11 @@ import com.openthinks.others.webpages.util.ResourceInfo;
 public abstract class AbstractResourceKeeper implements ResourceKeep {
 	private ResourceKeepListeners keepListeners = new ResourceKeepListeners();
 	protected ResourceInfo resourceInfo;
+	/**
+	 * the record kept by previous run in incremental mode, the resource is revalidated by it
+	 */
+	protected CrawlManifest.Record keptRecord;
+	private boolean awaitInFlight = true;
 
 	public void addResourceKeepListener(ResourceKeepListener keepListener) {
 		keepListeners.add(keepListener);
@@ -49,17 +56,102 @@ public abstract class AbstractResourceKeeper implements ResourceKeep {
 	@Override
 	public void keep() {
 		keepListeners.doKeepBefore(this);
+		completeKeep(keepContent());
+	}
+
+	/**
+	 * keep the resource content by the given executor, the change of reference is left to
+	 * {@link #completeKeep(boolean)} which should be called on the thread owning the page
+	 * @param executor Executor
+	 * @return CompletableFuture&lt;Boolean&gt; the result of {@link #keepContent()}
+	 */
+	public CompletableFuture<Boolean> keepAsync(Executor executor) {
+		keepListeners.doKeepBefore(this);
+		return CompletableFuture.supplyAsync(this::keepContent, executor);
+	}
+
+	/**
+	 * change the reference to local when the content has been kept
+	 * @param kept the result of {@link #keepContent()}
+	 */
+	public void completeKeep(boolean kept) {
+		if (kept) {
+			try {
+				doChange();
+			} catch (Exception e) {
+				ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+			}
+		}
+		keepListeners.doKeepAfter(this);
+	}
+
+	/**
+	 * keep the resource content only
+	 * @return true if the resource is kept or already exist, then the reference can be changed
+	 */
+	protected boolean keepContent() {
+		ResourceIndex index = resourceIndex();
+		if (index == null) {
+			return doKeepContent();
+		}
+		ResourceIndex.Entry entry = index.claim(getResourceURL(), getResourcePath());
+		if (!entry.isOwner()) {
+			if (!awaitInFlight && entry.getState() == ResourceIndex.State.PENDING) {
+				return true;
+			}
+			ResourceIndex.State state = entry.await();
+			ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), getResourceURL() + " was already " + state);
+			if (state == ResourceIndex.State.DONE && resourceInfo != null) {
+				// kept by others, the reference is changed by what they found
+				resourceInfo.setCharset(entry.getCharset());
+			}
+			return state == ResourceIndex.State.DONE;
+		}
+		keptRecord = index.keptRecordOf(getResourceURL(), getResourcePath());
+		boolean kept = false;
+		try {
+			kept = doKeepContent();
+		} finally {
+			if (kept) {
+				index.done(entry, resourceInfo);
+			} else {
+				index.failed(entry, resourceInfo);
+			}
+		}
+		return kept;
+	}
+
+	private boolean doKeepContent() {
 		try {
-			checkIfExist();
+			if (keptRecord == null) {
+				checkIfExist();
+			}
 			doKeep();
-			doChange();
+			return true;
 		} catch (ResourceAlreadyExistException e) {
 			ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
-			doChange();
+			return true;
 		} catch (Exception e) {
 			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+			return false;
 		}
-		keepListeners.doKeepAfter(this);
+	}
+
+	/**
+	 * wait for the same resource which is being kept by others or not; the nested keepers should not
+	 * wait, because the owner may be waiting for them in turn
+	 * @param awaitInFlight true by default
+	 */
+	public void setAwaitInFlight(boolean awaitInFlight) {
+		this.awaitInFlight = awaitInFlight;
+	}
+
+	/**
+	 * the shared index of kept resources
+	 * @return ResourceIndex or null if no index
+	 */
+	protected ResourceIndex resourceIndex() {
+		return null;
 	}
 
 	protected abstract void doChange();
@@ -0,0 +1,344 @@
+package com.openthinks.others.webpages.keeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.util.ResourceInfo;
+import com.openthinks.others.webpages.util.ResourceType;
+
+/**
+ * The append-only manifest of kept resources for one book, which lets a restarted run skip the
+ * resources kept by previous run without any HTTP round trip.<BR>
+ * Each line is tab separated: status, type, url, local path, length, ETag, Last-Modified, SHA-256,
+ * charset; the later line of the same resource overrides the earlier one.
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CrawlManifest implements Closeable {
+  public static final String MANIFEST_FILE = ".keeper-manifest";
+  static final String STATUS_DONE = "DONE";
+  static final String STATUS_FAILED = "FAILED";
+  private static final String SEPARATOR = "\t";
+
+  private final File baseDir;
+  private final File manifestFile;
+  private final Map<String, Record> records = new ConcurrentHashMap<>();
+  private final Map<String, Record> pages = new ConcurrentHashMap<>();
+  private BufferedWriter writer;
+
+  private CrawlManifest(File baseDir) {
+    this.baseDir = baseDir;
+    this.manifestFile = new File(baseDir, MANIFEST_FILE);
+  }
+
+  /**
+   * load the manifest in the given book directory, create it if not exist
+   * 
+   * @param baseDir the book keep directory
+   * @return {@link CrawlManifest}
+   * @throws IOException when failed to read or create the manifest file
+   */
+  public static CrawlManifest open(File baseDir) throws IOException {
+    CrawlManifest manifest = new CrawlManifest(baseDir);
+    manifest.load();
+    return manifest;
+  }
+
+  private void load() throws IOException {
+    if (manifestFile.isFile()) {
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8))) {
+        String line = null;
+        while ((line = reader.readLine()) != null) {
+          Record record = Record.parse(line, baseDir);
+          if (record == null)
+            continue;
+          if (STATUS_DONE.equals(record.status)) {
+            records.put(keyOf(record.url, record.path), record);
+            if (ResourceType.TEXT_HTML.name().equals(record.type))
+              pages.put(record.url, record);
+          } else {
+            records.remove(keyOf(record.url, record.path));
+            Record page = pages.get(record.url);
+            if (page != null && page.path.equals(record.path))
+              pages.remove(record.url);
+          }
+        }
+      }
+      ProcessLogger.info("Load " + records.size() + " kept resources from " + manifestFile);
+    } else {
+      baseDir.mkdirs();
+    }
+    writer = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(manifestFile, true), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * check the resource was kept completely by previous run; the file recorded by this manifest but
+   * changed since is deleted, so it will be downloaded again. The files without record are never
+   * touched, they may be shared with other books or kept under another URL
+   * 
+   * @param url resource URL
+   * @param path resource local path
+   * @return true if the resource is intact on disk
+   */
+  public boolean isKept(URL url, String path) {
+    String normalizedPath = normalize(path);
+    Record record = records.get(keyOf(url.toExternalForm(), normalizedPath));
+    if (record == null)
+      return false;
+    if (record.isIntact())
+      return true;
+    ProcessLogger.info("Changed resource will be download again:" + normalizedPath);
+    records.remove(keyOf(record.url, record.path));
+    new File(normalizedPath).delete();
+    return false;
+  }
+
+  /**
+   * check the page of given URL was kept completely by previous run
+   * 
+   * @param url page URL
+   * @return true if the page is intact on disk
+   */
+  public boolean isPageKept(URL url) {
+    Record record = pages.get(url.toExternalForm());
+    return record != null && record.isIntact();
+  }
+
+  /**
+   * append the kept resource to manifest
+   * 
+   * @param info {@link ResourceInfo}
+   */
+  public void done(ResourceInfo info) {
+    File file = new File(info.getResourcePath());
+    Record record = new Record();
+    record.status = STATUS_DONE;
+    record.type = info.getResourceType() == null ? "" : info.getResourceType().name();
+    record.url = info.getResourceURL().toExternalForm();
+    record.path = normalize(info.getResourcePath());
+    record.length = file.length();
+    record.etag = info.getEtag();
+    record.lastModified = info.getLastModified();
+    record.sha256 = sha256Of(file);
+    record.charset = info.getCharset();
+    records.put(keyOf(record.url, record.path), record);
+    if (ResourceType.TEXT_HTML.name().equals(record.type))
+      pages.put(record.url, record);
+    append(record);
+  }
+
+  /**
+   * append the failed resource to manifest
+   * 
+   * @param info {@link ResourceInfo}
+   */
+  public void failed(ResourceInfo info) {
+    Record record = new Record();
+    record.status = STATUS_FAILED;
+    record.type = info.getResourceType() == null ? "" : info.getResourceType().name();
+    record.url = info.getResourceURL().toExternalForm();
+    record.path = normalize(info.getResourcePath());
+    records.remove(keyOf(record.url, record.path));
+    append(record);
+  }
+
+  /**
+   * get the kept record of given resource
+   * 
+   * @param url resource URL
+   * @param path resource local path
+   * @return {@link Record} or null
+   */
+  public Record lookup(URL url, String path) {
+    return records.get(keyOf(url.toExternalForm(), normalize(path)));
+  }
+
+  /**
+   * get the kept record of given page
+   * 
+   * @param url page URL
+   * @return {@link Record} or null
+   */
+  public Record lookupPage(URL url) {
+    return pages.get(url.toExternalForm());
+  }
+
+  public int size() {
+    return records.size();
+  }
+
+  private synchronized void append(Record record) {
+    if (writer == null)
+      return;
+    try {
+      writer.write(record.format(baseDir));
+      writer.newLine();
+      writer.flush();
+    } catch (IOException e) {
+      ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      writer = null;
+    }
+  }
+
+  private static String keyOf(String url, String path) {
+    return url + SEPARATOR + path;
+  }
+
+  static String normalize(String path) {
+    return new File(path).toPath().toAbsolutePath().normalize().toString();
+  }
+
+  /**
+   * calculate the SHA-256 of the file content
+   * 
+   * @param file {@link File}
+   * @return hex string or empty if failed
+   */
+  public static String sha256Of(File file) {
+    try (InputStream ins = new FileInputStream(file)) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] buff = new byte[64 * 1024];
+      int size = -1;
+      while ((size = ins.read(buff)) != -1) {
+        digest.update(buff, 0, size);
+      }
+      return toHex(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      return "";
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * The manifest line of one resource
+   */
+  public static final class Record {
+    String status;
+    String type;
+    String url;
+    String path;
+    long length = -1;
+    String etag;
+    String lastModified;
+    String sha256;
+    String charset;
+
+    public String getUrl() {
+      return url;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public long getLength() {
+      return length;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    public String getSha256() {
+      return sha256;
+    }
+
+    /**
+     * @return the charset which the kept text is read in, null if unknown
+     */
+    public String getCharset() {
+      return charset;
+    }
+
+    /**
+     * @return true if the local file has the recorded length
+     */
+    public boolean isIntact() {
+      File file = new File(path);
+      return file.isFile() && file.length() == length;
+    }
+
+    String format(File baseDir) {
+      String relativePath = path;
+      try {
+        Path base = baseDir.toPath().toAbsolutePath().normalize();
+        relativePath = base.relativize(new File(path).toPath()).toString().replace('\\', '/');
+      } catch (IllegalArgumentException e) {
+        // another root, keep the absolute path
+      }
+      return String.join(SEPARATOR, status, type, clean(url), clean(relativePath),
+          String.valueOf(length), clean(etag), clean(lastModified), clean(sha256), clean(charset));
+    }
+
+    static Record parse(String line, File baseDir) {
+      String[] items = line.split(SEPARATOR, -1);
+      if (items.length < 8)
+        return null;
+      Record record = new Record();
+      record.status = items[0];
+      record.type = items[1];
+      record.url = items[2];
+      File file = new File(items[3]);
+      record.path = normalize(file.isAbsolute() ? file.getPath() : new File(baseDir, items[3]).getPath());
+      try {
+        record.length = Long.parseLong(items[4]);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      record.etag = items[5].isEmpty() ? null : items[5];
+      record.lastModified = items[6].isEmpty() ? null : items[6];
+      record.sha256 = items[7];
+      // the lines written before the charset column have none
+      record.charset = items.length > 8 && !items[8].isEmpty() ? items[8] : null;
+      return record;
+    }
+
+    private static String clean(String value) {
+      if (value == null)
+        return "";
+      return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+  }
+}
@@ -26,6 +26,7 @@ package com.openthinks.others.webpages.keeper;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
@@ -42,8 +43,13 @@ import com.openthinks.libs.utilities.logger.ProcessLogger;
 import com.openthinks.others.webpages.additional.AdditionalBooks;
 import com.openthinks.others.webpages.additional.AdditionalProcessor;
 import com.openthinks.others.webpages.agent.HtmlResourceAgent;
+import com.openthinks.others.webpages.exception.ResourceAlreadyExistException;
+import com.openthinks.others.webpages.metrics.CrawlMetrics;
+import com.openthinks.others.webpages.transfer.AsyncResourceTransport;
 import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
 import com.openthinks.others.webpages.util.ResourceInfo;
+import com.openthinks.others.webpages.util.ResponseCache;
+import com.openthinks.others.webpages.util.ResourceType;
 
 /**
  * @author dailey.yet@outlook.com
@@ -55,12 +61,14 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 	private HtmlResourceAgent resourceAgent;
 	private HtmlPage htmlPage;
 	private HtmlPageTransfer pageTransfer;
+	private WebResponse preloadedResponse;
 
 	public HtmlResourceKeeper(HtmlPageTransfer pageTransfer, HtmlElement htmlElement, File keepDir) {
 		super();
 		this.pageTransfer = pageTransfer;
 		this.htmlElement = htmlElement;
 		this.keepDir = keepDir;
+		addContextKeepListeners();
 	}
 
 	public HtmlResourceKeeper(HtmlPageTransfer pageTransfer, HtmlPage htmlPage, File keepDir) {
@@ -69,6 +77,13 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 		this.htmlPage = htmlPage;
 		this.keepDir = keepDir;
 		this.htmlElement = this.htmlPage.getDocumentElement();
+		addContextKeepListeners();
+	}
+
+	private void addContextKeepListeners() {
+		for (ResourceKeepListener keepListener : pageTransfer.getContext().getKeepListeners()) {
+			addResourceKeepListener(keepListener);
+		}
 	}
 
 	public final HtmlPageTransfer getPageTransfer() {
@@ -90,26 +105,149 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 		resourceName = (resourceName == null) ? resourceNameOf(resourceURL) : resourceName;
 		this.resourceInfo.setResourceURL(resourceURL);
 		this.resourceInfo.setResourceName(resourceName);
+		this.resourceInfo.setResourceType(resourceAgent.getResourceType());
 		resourceInfo.setResourcePath(new File(keepDir, resourceName).getAbsolutePath());
 		return this;
 	}
 
+	/**
+	 * hand the already loaded response of the resource to this keeper, it will be used once instead of
+	 * requesting the resource again
+	 * @param wrp WebResponse
+	 */
+	public void preload(WebResponse wrp) {
+		this.preloadedResponse = wrp;
+	}
+
+	/**
+	 * the response given by {@link #preload(WebResponse)} and not loaded yet
+	 * @return WebResponse or null
+	 */
+	public WebResponse getPreloadedResponse() {
+		return this.preloadedResponse;
+	}
+
 	@Override
 	public WebResponse loadWebResponse(URL url) throws IOException {
+		WebResponse preloaded = this.preloadedResponse;
+		if (preloaded != null && url.equals(preloaded.getWebRequest().getUrl())) {
+			this.preloadedResponse = null;
+			return preloaded;
+		}
+		boolean revalidate = isRevalidating(url);
+		final WebRequest wrq = newWebRequest(url, revalidate);
+		CrawlMetrics metrics = pageTransfer.getContext().getMetrics();
+		Optional<ResponseCache> responseCache = pageTransfer.getContext().getResponseCache();
+		WebResponse wrp;
+		if (responseCache.isPresent()) {
+			WebResponse[] requested = new WebResponse[1];
+			wrp = responseCache.get().load(wrq, () -> requested[0] = request(url, wrq, metrics));
+			metrics.counter(requested[0] == null ? CrawlMetrics.CACHE_HITS
+					: requested[0] == wrp ? CrawlMetrics.CACHE_MISSES : CrawlMetrics.CACHE_REVALIDATED).increment();
+		} else {
+			wrp = request(url, wrq, metrics);
+		}
+		if (revalidate && wrp.getStatusCode() == 304) {
+			notModified(metrics);
+		}
+		if (resourceInfo != null && url.equals(resourceInfo.getResourceURL())) {
+			resourceInfo.setEtag(wrp.getResponseHeaderValue("ETag"));
+			resourceInfo.setLastModified(wrp.getResponseHeaderValue("Last-Modified"));
+		}
+		return wrp;
+	}
+
+	/**
+	 * load the resource of this keeper by the asynchronous transport of context, the body is handed to
+	 * the handler while arriving and not kept in memory; the response cache is not used
+	 * @param handler store the body
+	 * @return false if the context has no asynchronous transport or the response was preloaded, the
+	 *         resource should be loaded by {@link #loadWebResponse(URL)} then
+	 * @throws IOException when failed to load or handle
+	 */
+	public boolean streamResource(AsyncResourceTransport.BodyHandler handler) throws IOException {
+		Optional<AsyncResourceTransport> transport = pageTransfer.getContext().getAsyncTransport();
+		if (!transport.isPresent() || this.preloadedResponse != null || resourceInfo == null)
+			return false;
+		URL url = getResourceURL();
+		boolean revalidate = isRevalidating(url);
+		final WebRequest wrq = newWebRequest(url, revalidate);
+		CrawlMetrics metrics = pageTransfer.getContext().getMetrics();
+		metrics.countRequest(url);
+		long start = System.nanoTime();
+		AsyncResourceTransport.Result result = pageTransfer.getContext().getHostLimiter().execute(url, () -> {
+			return transport.get().send(pageTransfer.getResourceClient(), wrq, handler);
+		});
+		metrics.record(CrawlMetrics.LOAD_RESPONSE, typeOfResource(), start);
+		metrics.counter(CrawlMetrics.BYTES_DOWNLOADED, typeOfResource()).add(result.getBytes());
+		if (revalidate && result.getStatusCode() == 304) {
+			notModified(metrics);
+		}
+		resourceInfo.setEtag(result.getEtag());
+		resourceInfo.setLastModified(result.getLastModified());
+		return true;
+	}
+
+	private boolean isRevalidating(URL url) {
+		return keptRecord != null && resourceInfo != null && url.equals(resourceInfo.getResourceURL());
+	}
+
+	/**
+	 * the request of resource with the headers of referring page, and the validators of kept resource
+	 * when revalidating
+	 */
+	WebRequest newWebRequest(URL url, boolean revalidate) {
 		final WebRequest referringRequest = getHtmlPage().getWebResponse().getWebRequest();
-		final WebRequest wrq = new WebRequest(url, getHtmlPage().getWebClient().getBrowserVersion()
+		final WebRequest wrq = new WebRequest(url, pageTransfer.getResourceClient().getBrowserVersion()
 				.getScriptAcceptHeader());
 		wrq.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
+		// the validators of page are not for its resources
+		wrq.removeAdditionalHeader("If-None-Match");
+		wrq.removeAdditionalHeader("If-Modified-Since");
 		wrq.setAdditionalHeader("Referer", referringRequest.getUrl().toString());
-		wrq.setAdditionalHeader("Accept", getHtmlPage().getWebClient().getBrowserVersion().getScriptAcceptHeader());
-		WebResponse wrp = getHtmlPage().getWebClient().loadWebResponse(wrq);
+		wrq.setAdditionalHeader("Accept", pageTransfer.getResourceClient().getBrowserVersion().getScriptAcceptHeader());
+		if (revalidate) {
+			if (keptRecord.getEtag() != null)
+				wrq.setAdditionalHeader("If-None-Match", keptRecord.getEtag());
+			if (keptRecord.getLastModified() != null)
+				wrq.setAdditionalHeader("If-Modified-Since", keptRecord.getLastModified());
+		}
+		return wrq;
+	}
+
+	private void notModified(CrawlMetrics metrics) {
+		metrics.counter(CrawlMetrics.NOT_MODIFIED, typeOfResource()).increment();
+		resourceInfo.setEtag(keptRecord.getEtag());
+		resourceInfo.setLastModified(keptRecord.getLastModified());
+		resourceInfo.setCharset(keptRecord.getCharset());
+		throw new ResourceAlreadyExistException(getResourcePath() + " was not modified.");
+	}
+
+	private WebResponse request(URL url, WebRequest wrq, CrawlMetrics metrics) throws IOException {
+		metrics.countRequest(url);
+		long start = System.nanoTime();
+		WebResponse wrp = pageTransfer.getContext().getHostLimiter().execute(url, () -> {
+			return pageTransfer.getResourceClient().loadWebResponse(wrq);
+		});
+		metrics.record(CrawlMetrics.LOAD_RESPONSE, typeOfResource(), start);
+		metrics.counter(CrawlMetrics.BYTES_DOWNLOADED, typeOfResource()).add(Math.max(0, wrp.getContentLength()));
 		return wrp;
 	}
 
+	@Override
+	protected ResourceIndex resourceIndex() {
+		return pageTransfer.getContext().getResourceIndex();
+	}
+
 	@Override
 	protected void doKeep() throws Exception {
 		Objects.requireNonNull(resourceAgent);
-		this.resourceAgent.makeKeepToLocal(htmlElement);
+		long start = System.nanoTime();
+		try {
+			this.resourceAgent.makeKeepToLocal(htmlElement);
+		} finally {
+			pageTransfer.getContext().getMetrics().record(CrawlMetrics.MAKE_KEEP, typeOfResource(), start);
+		}
 	}
 
 	@Override
@@ -118,6 +256,10 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 		this.resourceAgent.makeChangeToLocal(htmlElement);
 	}
 
+	private ResourceType typeOfResource() {
+		return resourceInfo == null ? null : resourceInfo.getResourceType();
+	}
+
 	public final File getKeepDir() {
 		return this.keepDir;
 	}
@@ -152,8 +294,12 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 
 	public <T extends HtmlResourceAgent> String doAdditionalProcessor(Class<T> clazz, String htmlContent) {
 		ProcessLogger.debug(clazz.getName());
+		Optional<AdditionalProcessor> additionalProcessor = getAdditionalProcessor(clazz);
+		if (!additionalProcessor.isPresent()) {
+			return htmlContent;
+		}
 		final StringBuilder content = new StringBuilder();
-		getAdditionalProcessor(clazz).ifPresent((aProcessor) -> {
+		additionalProcessor.ifPresent((aProcessor) -> {
 			try {
 				String newContent = aProcessor.process(htmlContent);
 				content.append(newContent);
@@ -165,6 +311,26 @@ public class HtmlResourceKeeper extends AbstractResourceKeeper {
 		return content.toString();
 	}
 
+	/**
+	 * the writer of serialized page, filtered by the additional processor if any
+	 * @param clazz the agent class
+	 * @param htmlWriter the writer to local file
+	 * @return Writer the writer from {@link AdditionalProcessor#process(Writer)}, or the given one
+	 */
+	public <T extends HtmlResourceAgent> Writer doAdditionalProcessor(Class<T> clazz, Writer htmlWriter) {
+		ProcessLogger.debug(clazz.getName());
+		Optional<AdditionalProcessor> additionalProcessor = getAdditionalProcessor(clazz);
+		if (!additionalProcessor.isPresent()) {
+			return htmlWriter;
+		}
+		try {
+			return additionalProcessor.get().process(htmlWriter);
+		} catch (Exception e) {
+			ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+			return htmlWriter;
+		}
+	}
+
 	public boolean nameEncode() {
 
 		return false;
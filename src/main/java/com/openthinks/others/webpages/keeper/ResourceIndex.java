@@ -0,0 +1,279 @@
+package com.openthinks.others.webpages.keeper;
+
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import com.openthinks.others.webpages.util.ResourceInfo;
+
+/**
+ * The in-memory index of kept resources, shared by all keepers of one download run.<BR>
+ * Each resource is identified by its URL and local path, so an already kept or in-flight resource
+ * is never downloaded again and concurrent requests for it wait for the same download.<BR>
+ * When backed by a {@link CrawlManifest}, the resources kept by previous run are known as done and
+ * each result of current run is appended to the manifest; in incremental mode they are claimed
+ * again, so their owners can revalidate them by the recorded validators.
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class ResourceIndex {
+
+  public static enum State {
+    PENDING, DONE, FAILED;
+  }
+
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final CrawlManifest manifest;
+  private final boolean incremental;
+
+  public ResourceIndex() {
+    this(null);
+  }
+
+  /**
+   * @param manifest the persistent manifest of current book, null if no manifest
+   */
+  public ResourceIndex(CrawlManifest manifest) {
+    this(manifest, false);
+  }
+
+  /**
+   * @param manifest the persistent manifest of current book, null if no manifest
+   * @param incremental revalidate the resources kept by previous run instead of skipping them
+   */
+  public ResourceIndex(CrawlManifest manifest, boolean incremental) {
+    this.manifest = manifest;
+    this.incremental = incremental && manifest != null;
+  }
+
+  /**
+   * claim the download of given resource
+   * 
+   * @param url resource URL
+   * @param path resource local path
+   * @return {@link Entry}, the caller should do the download when {@link Entry#isOwner()} is true
+   *         and then call {@link #done(Entry)} or {@link #failed(Entry)}
+   */
+  public Entry claim(URL url, String path) {
+    final Key key = new Key(url, path);
+    while (true) {
+      Entry exist = entries.get(key);
+      if (exist == null && manifest != null && manifest.isKept(url, path) && !incremental) {
+        Entry kept = new Entry(key, true);
+        kept.charset.set(manifest.lookup(url, path).getCharset());
+        kept.complete(State.DONE);
+        exist = entries.putIfAbsent(key, kept);
+        if (exist == null)
+          return new Entry(kept);
+      }
+      if (exist == null) {
+        Entry claimed = new Entry(key, true);
+        exist = entries.putIfAbsent(key, claimed);
+        if (exist == null)
+          return claimed;
+      }
+      if (exist.getState() != State.FAILED) {
+        return new Entry(exist);
+      }
+      // retry the failed one
+      Entry claimed = new Entry(key, true);
+      if (entries.replace(key, exist, claimed))
+        return claimed;
+    }
+  }
+
+  /**
+   * mark the claimed resource as kept
+   * 
+   * @param entry {@link Entry} returned by {@link #claim(URL, String)}
+   * @param info the information of kept resource
+   */
+  public void done(Entry entry, ResourceInfo info) {
+    if (manifest != null && entry.isOwner() && info != null) {
+      manifest.done(info);
+    }
+    if (entry.isOwner() && info != null) {
+      entry.charset.set(info.getCharset());
+    }
+    entry.complete(State.DONE);
+  }
+
+  /**
+   * mark the claimed resource as failed, next claim will retry it
+   * 
+   * @param entry {@link Entry} returned by {@link #claim(URL, String)}
+   * @param info the information of failed resource
+   */
+  public void failed(Entry entry, ResourceInfo info) {
+    if (manifest != null && entry.isOwner() && info != null) {
+      manifest.failed(info);
+    }
+    entry.complete(State.FAILED);
+  }
+
+  /**
+   * check the page of given URL was kept completely by previous run, the kept pages are revalidated
+   * instead in incremental mode
+   * 
+   * @param url page URL
+   * @return true if kept and not in incremental mode
+   */
+  public boolean isPageKept(URL url) {
+    return manifest != null && !incremental && manifest.isPageKept(url);
+  }
+
+  /**
+   * the record of given resource kept by previous run, which should be revalidated by its owner
+   * 
+   * @param url resource URL
+   * @param path resource local path
+   * @return {@link CrawlManifest.Record} or null if not in incremental mode or not kept intact
+   */
+  public CrawlManifest.Record keptRecordOf(URL url, String path) {
+    if (!incremental)
+      return null;
+    CrawlManifest.Record record = manifest.lookup(url, path);
+    return record != null && record.isIntact() ? record : null;
+  }
+
+  /**
+   * the record of given page kept by previous run, which should be revalidated before transfer
+   * 
+   * @param url page URL
+   * @return {@link CrawlManifest.Record} or null if not in incremental mode or not kept intact
+   */
+  public CrawlManifest.Record keptPageOf(URL url) {
+    if (!incremental)
+      return null;
+    CrawlManifest.Record record = manifest.lookupPage(url);
+    return record != null && record.isIntact() ? record : null;
+  }
+
+  /**
+   * @return true if the kept pages and resources are revalidated instead of skipped
+   */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * @return the backed manifest, null if no manifest
+   */
+  public CrawlManifest getManifest() {
+    return manifest;
+  }
+
+  /**
+   * mark the resource as kept without download, used for the resources known from previous run
+   * 
+   * @param url resource URL
+   * @param path resource local path
+   */
+  public void markDone(URL url, String path) {
+    Entry entry = new Entry(new Key(url, path), true);
+    entry.complete(State.DONE);
+    entries.put(entry.key, entry);
+  }
+
+  public State stateOf(URL url, String path) {
+    Entry entry = entries.get(new Key(url, path));
+    return entry == null ? null : entry.getState();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+    if (manifest != null) {
+      manifest.close();
+    }
+  }
+
+  public static final class Entry {
+    private final Key key;
+    private final boolean owner;
+    private final CompletableFuture<State> completion;
+    private final AtomicReference<String> charset;
+
+    private Entry(Key key, boolean owner) {
+      this.key = key;
+      this.owner = owner;
+      this.completion = new CompletableFuture<>();
+      this.charset = new AtomicReference<>();
+    }
+
+    private Entry(Entry exist) {
+      this.key = exist.key;
+      this.owner = false;
+      this.completion = exist.completion;
+      this.charset = exist.charset;
+    }
+
+    /**
+     * @return true if the caller claimed the download
+     */
+    public boolean isOwner() {
+      return owner;
+    }
+
+    public State getState() {
+      return completion.getNow(State.PENDING);
+    }
+
+    /**
+     * wait for the download of the resource owner
+     * 
+     * @return the final {@link State}
+     */
+    public State await() {
+      return completion.join();
+    }
+
+    public String getPath() {
+      return key.path;
+    }
+
+    /**
+     * @return the charset which the kept text is read in, recorded by its owner or by previous run;
+     *         null if unknown
+     */
+    public String getCharset() {
+      return charset.get();
+    }
+
+    private void complete(State state) {
+      if (owner)
+        completion.complete(state);
+    }
+  }
+
+  static final class Key {
+    final String url;
+    final String path;
+
+    Key(URL url, String path) {
+      this.url = Objects.requireNonNull(url).toExternalForm();
+      this.path = path;
+    }
+
+    @Override
+    public int hashCode() {
+      return url.hashCode() * 31 + (path == null ? 0 : path.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return url.equals(other.url) && Objects.equals(path, other.path);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.net.URL;
 import java.util.Objects;
 
 import com.openthinks.others.webpages.util.ResourceInfo;
+import com.openthinks.others.webpages.util.ResourceNaming;
 import com.openthinks.others.webpages.util.ResourceType;
 
 /**
@@ -60,7 +61,7 @@ public interface ResourceKeep {
 		//			name = name.substring(start + 1, end);
 		//		else
 		name = name.substring(start + 1);
-		name = name.replaceAll("[^0-9A-Za-z_\\-\\.]", "_");
+		name = ResourceNaming.UNSAFE_CHAR.matcher(name).replaceAll("_");
 		return name;
 	}
 
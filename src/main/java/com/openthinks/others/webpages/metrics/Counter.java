@@ -0,0 +1,25 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The monotonic counter of {@link CrawlMetrics}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class Counter {
+  private final LongAdder value = new LongAdder();
+
+  public void increment() {
+    value.increment();
+  }
+
+  public void add(long delta) {
+    value.add(delta);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+}
@@ -0,0 +1,251 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openthinks.others.webpages.util.ResourceType;
+import com.openthinks.others.webpages.util.ResourceWriter;
+
+/**
+ * The registry of counters and histograms of one download run; the metric names are tagged by
+ * {@link ResourceType} like <code>make-keep[IMAGE]</code>, the histograms of stages are in
+ * nanoseconds
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CrawlMetrics {
+  /**
+   * the stage of {@link com.gargoylesoftware.htmlunit.WebClient#getPage(java.net.URL)}
+   */
+  public static final String GET_PAGE = "get-page";
+  /**
+   * the stage of loading the response of resource
+   */
+  public static final String LOAD_RESPONSE = "load-response";
+  /**
+   * the stage of {@link com.openthinks.others.webpages.agent.ResourceAgent#makeKeepToLocal}
+   */
+  public static final String MAKE_KEEP = "make-keep";
+  /**
+   * the stage of serializing page
+   */
+  public static final String AS_XML = "as-xml";
+  /**
+   * the stage of writing file
+   */
+  public static final String WRITE_FILE = "write-file";
+  /**
+   * the whole keep of resource, from submit to reference changed
+   */
+  public static final String KEEP = "keep";
+
+  public static final String PAGES_LOADED = "pages-loaded";
+  public static final String PAGE_ERRORS = "page-errors";
+  public static final String BYTES_DOWNLOADED = "bytes-downloaded";
+  public static final String BYTES_WRITTEN = "bytes-written";
+  public static final String RESOURCES_KEPT = "resources-kept";
+  public static final String RESOURCES_FAILED = "resources-failed";
+  public static final String CACHE_HITS = "cache-hits";
+  public static final String CACHE_REVALIDATED = "cache-revalidated";
+  public static final String CACHE_MISSES = "cache-misses";
+  /**
+   * the pages and resources kept by previous run and answered 304 by server in incremental mode
+   */
+  public static final String NOT_MODIFIED = "not-modified";
+  /**
+   * the downloaded files which have the same content as the existing local files, so not rewritten
+   */
+  public static final String FILES_UNCHANGED = "files-unchanged";
+
+  private final long startMillis = System.currentTimeMillis();
+  private final ConcurrentMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final ConcurrentMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+  private final ConcurrentMap<String, Counter> hostRequests = new ConcurrentSkipListMap<>();
+  private final AtomicLong inFlight = new AtomicLong();
+
+  public static String nameOf(String name, ResourceType type) {
+    return type == null ? name : name + "[" + type + "]";
+  }
+
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(name, (key) -> new Counter());
+  }
+
+  public Counter counter(String name, ResourceType type) {
+    return counter(nameOf(name, type));
+  }
+
+  public Histogram histogram(String name) {
+    return histograms.computeIfAbsent(name, (key) -> new Histogram());
+  }
+
+  public Histogram histogram(String name, ResourceType type) {
+    return histogram(nameOf(name, type));
+  }
+
+  /**
+   * record the time of a stage
+   * 
+   * @param stage the stage name
+   * @param type the tag of stage, could be null
+   * @param startNanos the value of {@link System#nanoTime()} when the stage started
+   */
+  public void record(String stage, ResourceType type, long startNanos) {
+    histogram(stage, type).update(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * count a request to the host of given URL
+   * 
+   * @param url URL
+   */
+  public void countRequest(URL url) {
+    hostRequests.computeIfAbsent(url.getHost(), (key) -> new Counter()).increment();
+  }
+
+  /**
+   * @return the request count of each host, sorted by host
+   */
+  public Map<String, Long> getHostRequests() {
+    Map<String, Long> requests = new TreeMap<>();
+    for (Map.Entry<String, Counter> entry : hostRequests.entrySet()) {
+      requests.put(entry.getKey(), entry.getValue().get());
+    }
+    return requests;
+  }
+
+  public void keepStarted() {
+    inFlight.incrementAndGet();
+  }
+
+  public void keepFinished() {
+    inFlight.decrementAndGet();
+  }
+
+  /**
+   * @return the resources which are being kept
+   */
+  public long getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * the sum of counter of all tags
+   * 
+   * @param name the counter name without tag
+   * @return long
+   */
+  public long total(String name) {
+    long total = 0;
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      String key = entry.getKey();
+      if (key.equals(name) || key.startsWith(name + "[")) {
+        total += entry.getValue().get();
+      }
+    }
+    return total;
+  }
+
+  public long getElapsedMillis() {
+    return System.currentTimeMillis() - startMillis;
+  }
+
+  /**
+   * the summary line of current progress and stages
+   * 
+   * @return String
+   */
+  public String summary() {
+    double seconds = Math.max(1, getElapsedMillis()) / 1000.0;
+    long pages = total(PAGES_LOADED);
+    long bytes = total(BYTES_DOWNLOADED);
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("elapsed=%.0fs pages=%d (%.2f/s) downloaded=%dKB (%.1fKB/s) kept=%d failed=%d errors=%d",
+        seconds, pages, pages / seconds, bytes / 1024, bytes / 1024.0 / seconds, total(RESOURCES_KEPT),
+        total(RESOURCES_FAILED), total(PAGE_ERRORS)));
+    long cached = total(CACHE_HITS) + total(CACHE_REVALIDATED);
+    long lookups = cached + total(CACHE_MISSES);
+    if (lookups > 0) {
+      sb.append(String.format(" cache=%.1f%%", cached * 100.0 / lookups));
+    }
+    long notModified = total(NOT_MODIFIED);
+    long unchanged = total(FILES_UNCHANGED);
+    if (notModified + unchanged > 0) {
+      sb.append(String.format(" not-modified=%d unchanged=%d", notModified, unchanged));
+    }
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      sb.append(String.format(" %s=%d/%.1fms/p95:%.1fms", entry.getKey(), histogram.getCount(),
+          millis(histogram.getMean()), millis(histogram.getPercentile(0.95))));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the JSON report of all counters and histograms, the times are in milliseconds
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(1024);
+    json.append("{\n");
+    json.append("  \"startTime\": \"").append(Instant.ofEpochMilli(startMillis)).append("\",\n");
+    json.append("  \"elapsedMillis\": ").append(getElapsedMillis()).append(",\n");
+    json.append("  \"counters\": {");
+    String separator = "\n";
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      json.append(separator).append("    \"").append(entry.getKey()).append("\": ")
+          .append(entry.getValue().get());
+      separator = ",\n";
+    }
+    json.append("\n  },\n");
+    json.append("  \"histograms\": {");
+    separator = "\n";
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+          .append("\"count\": ").append(histogram.getCount())
+          .append(", \"totalMillis\": ").append(format(millis(histogram.getSum())))
+          .append(", \"meanMillis\": ").append(format(millis(histogram.getMean())))
+          .append(", \"p50Millis\": ").append(format(millis(histogram.getPercentile(0.5))))
+          .append(", \"p95Millis\": ").append(format(millis(histogram.getPercentile(0.95))))
+          .append(", \"p99Millis\": ").append(format(millis(histogram.getPercentile(0.99))))
+          .append(", \"maxMillis\": ").append(format(millis(histogram.getMax()))).append("}");
+      separator = ",\n";
+    }
+    json.append("\n  }\n}\n");
+    return json.toString();
+  }
+
+  /**
+   * write the JSON report to the given file
+   * 
+   * @param file File
+   * @throws IOException
+   */
+  public void writeReport(File file) throws IOException {
+    Path target = file.toPath();
+    Path temp = ResourceWriter.tempPathOf(file);
+    Files.write(temp, toJson().getBytes(StandardCharsets.UTF_8));
+    ResourceWriter.moveAtomically(temp, target);
+  }
+
+  private static double millis(double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+}
@@ -0,0 +1,150 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * The {@link CrawlStatusMXBean} backed by the {@link CrawlMetrics} and the page progress of
+ * {@link com.openthinks.others.webpages.WebPagesLaunch}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CrawlStatus implements CrawlStatusMXBean {
+  public static final String OBJECT_NAME_PREFIX = "com.openthinks.others.webpages:type=CrawlStatus,name=";
+
+  private final String book;
+  private final CrawlMetrics metrics;
+  private final IntSupplier pagesTotal;
+  private final IntSupplier pagesDone;
+  private final BooleanSupplier running;
+  private final Runnable stopAction;
+
+  public CrawlStatus(String book, CrawlMetrics metrics, IntSupplier pagesTotal,
+      IntSupplier pagesDone, BooleanSupplier running, Runnable stopAction) {
+    this.book = book;
+    this.metrics = metrics;
+    this.pagesTotal = pagesTotal;
+    this.pagesDone = pagesDone;
+    this.running = running;
+    this.stopAction = stopAction;
+  }
+
+  @Override
+  public String getBook() {
+    return book;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running.getAsBoolean();
+  }
+
+  @Override
+  public long getElapsedMillis() {
+    return metrics.getElapsedMillis();
+  }
+
+  @Override
+  public int getPagesTotal() {
+    return pagesTotal.getAsInt();
+  }
+
+  @Override
+  public int getPagesDone() {
+    return pagesDone.getAsInt();
+  }
+
+  @Override
+  public int getPagesRemaining() {
+    int total = getPagesTotal();
+    return total < 0 ? -1 : Math.max(0, total - getPagesDone());
+  }
+
+  @Override
+  public long getResourcesInFlight() {
+    return metrics.getInFlight();
+  }
+
+  @Override
+  public long getResourcesKept() {
+    return metrics.total(CrawlMetrics.RESOURCES_KEPT);
+  }
+
+  @Override
+  public long getResourcesFailed() {
+    return metrics.total(CrawlMetrics.RESOURCES_FAILED);
+  }
+
+  @Override
+  public long getPageErrors() {
+    return metrics.total(CrawlMetrics.PAGE_ERRORS);
+  }
+
+  @Override
+  public long getBytesDownloaded() {
+    return metrics.total(CrawlMetrics.BYTES_DOWNLOADED);
+  }
+
+  @Override
+  public double getBytesPerSecond() {
+    return getBytesDownloaded() / seconds();
+  }
+
+  @Override
+  public Map<String, Double> getHostRequestRates() {
+    double seconds = seconds();
+    Map<String, Double> rates = new TreeMap<>();
+    for (Map.Entry<String, Long> entry : metrics.getHostRequests().entrySet()) {
+      rates.put(entry.getKey(), entry.getValue() / seconds);
+    }
+    return rates;
+  }
+
+  @Override
+  public void stop() {
+    stopAction.run();
+  }
+
+  private double seconds() {
+    return Math.max(1, metrics.getElapsedMillis()) / 1000.0;
+  }
+
+  /**
+   * @return the JSON of all attributes
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(512);
+    json.append("{\"book\": \"").append(escape(getBook())).append('"')
+        .append(", \"running\": ").append(isRunning())
+        .append(", \"elapsedMillis\": ").append(getElapsedMillis())
+        .append(", \"pagesTotal\": ").append(getPagesTotal())
+        .append(", \"pagesDone\": ").append(getPagesDone())
+        .append(", \"pagesRemaining\": ").append(getPagesRemaining())
+        .append(", \"resourcesInFlight\": ").append(getResourcesInFlight())
+        .append(", \"resourcesKept\": ").append(getResourcesKept())
+        .append(", \"resourcesFailed\": ").append(getResourcesFailed())
+        .append(", \"pageErrors\": ").append(getPageErrors())
+        .append(", \"bytesDownloaded\": ").append(getBytesDownloaded())
+        .append(", \"bytesPerSecond\": ").append(format(getBytesPerSecond()))
+        .append(", \"hostRequestRates\": {");
+    String separator = "";
+    for (Map.Entry<String, Double> entry : getHostRequestRates().entrySet()) {
+      json.append(separator).append('"').append(escape(entry.getKey())).append("\": ")
+          .append(format(entry.getValue()));
+      separator = ", ";
+    }
+    return json.append("}}").toString();
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  private static String escape(String text) {
+    return text == null ? "" : text.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
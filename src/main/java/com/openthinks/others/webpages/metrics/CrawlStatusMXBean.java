@@ -0,0 +1,57 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.util.Map;
+
+/**
+ * The live progress of one download run, registered by
+ * {@link com.openthinks.others.webpages.WebPagesLaunch} under
+ * <code>com.openthinks.others.webpages:type=CrawlStatus,name=&lt;book&gt;</code>
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public interface CrawlStatusMXBean {
+
+  /**
+   * @return the book name or the save directory of current run
+   */
+  String getBook();
+
+  boolean isRunning();
+
+  long getElapsedMillis();
+
+  /**
+   * @return the pages listed in catalog, -1 if unknown like chain download
+   */
+  int getPagesTotal();
+
+  int getPagesDone();
+
+  /**
+   * @return the pages not downloaded yet, -1 if unknown
+   */
+  int getPagesRemaining();
+
+  long getResourcesInFlight();
+
+  long getResourcesKept();
+
+  long getResourcesFailed();
+
+  long getPageErrors();
+
+  long getBytesDownloaded();
+
+  double getBytesPerSecond();
+
+  /**
+   * @return the requests per second of each host
+   */
+  Map<String, Double> getHostRequestRates();
+
+  /**
+   * stop the download after current pages, the same as manual stop
+   */
+  void stop();
+}
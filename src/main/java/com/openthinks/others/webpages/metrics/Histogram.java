@@ -0,0 +1,68 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The histogram of non-negative values, like nanoseconds of a stage; the values are counted in
+ * buckets of power of two, so the percentiles are approximate within a factor of two
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class Histogram {
+  // bucket i holds the values in [2^(i-1), 2^i), bucket 0 holds zero
+  private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void update(long value) {
+    long v = Math.max(0, value);
+    buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v));
+    count.increment();
+    sum.add(v);
+    long current;
+    while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+      // retry
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getSum() / n;
+  }
+
+  /**
+   * @param quantile between 0 and 1, like 0.95
+   * @return the upper bound of the bucket which holds the quantile
+   */
+  public long getPercentile(double quantile) {
+    long n = getCount();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * n);
+    long seen = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return i == 0 ? 0 : Math.min(getMax(), (1L << i) - 1);
+      }
+    }
+    return getMax();
+  }
+}
@@ -0,0 +1,53 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.openthinks.others.webpages.keeper.ResourceKeep;
+import com.openthinks.others.webpages.keeper.ResourceKeepListener;
+import com.openthinks.others.webpages.util.ResourceType;
+
+/**
+ * The {@link ResourceKeepListener} which records the time of each keep, the resources in flight and
+ * counts the kept and failed resources into {@link CrawlMetrics}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class MetricsKeepListener implements ResourceKeepListener {
+  private final CrawlMetrics metrics;
+  private final Map<ResourceKeep, Long> startNanos =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+
+  public MetricsKeepListener(CrawlMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void doKeepBefore(ResourceKeep resourceKeep) {
+    startNanos.put(resourceKeep, System.nanoTime());
+    metrics.keepStarted();
+  }
+
+  @Override
+  public void doKeepAfter(ResourceKeep resourceKeep) {
+    Long start = startNanos.remove(resourceKeep);
+    if (start != null) {
+      metrics.keepFinished();
+    }
+    if (resourceKeep.resourceInfo() == null) {
+      return;
+    }
+    ResourceType type = resourceKeep.getResourceType();
+    if (start != null) {
+      metrics.record(CrawlMetrics.KEEP, type, start);
+    }
+    if (new File(resourceKeep.getResourcePath()).isFile()) {
+      metrics.counter(CrawlMetrics.RESOURCES_KEPT, type).increment();
+    } else {
+      metrics.counter(CrawlMetrics.RESOURCES_FAILED, type).increment();
+    }
+  }
+}
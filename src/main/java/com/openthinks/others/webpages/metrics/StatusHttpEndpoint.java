@@ -0,0 +1,85 @@
+package com.openthinks.others.webpages.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The local HTTP endpoint of {@link CrawlStatus}, bound to loopback address only
+ * 
+ * <pre>
+ * GET  /status   the JSON of {@link CrawlStatus#toJson()}
+ * POST /stop     stop the download after current pages
+ * </pre>
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class StatusHttpEndpoint implements Closeable {
+  private final HttpServer server;
+  private final CrawlStatus status;
+
+  private StatusHttpEndpoint(HttpServer server, CrawlStatus status) {
+    this.server = server;
+    this.status = status;
+  }
+
+  /**
+   * start the endpoint on the given port of loopback address
+   * 
+   * @param port the port, 0 means any free port
+   * @param status {@link CrawlStatus}
+   * @return {@link StatusHttpEndpoint}
+   * @throws IOException when the port is not available
+   */
+  public static StatusHttpEndpoint start(int port, CrawlStatus status) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    StatusHttpEndpoint endpoint = new StatusHttpEndpoint(server, status);
+    server.createContext("/status", endpoint::handleStatus);
+    server.createContext("/stop", endpoint::handleStop);
+    server.start();
+    return endpoint;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handleStatus(HttpExchange exchange) throws IOException {
+    if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+      respond(exchange, 405, "{\"error\": \"GET only\"}");
+      return;
+    }
+    respond(exchange, 200, status.toJson());
+  }
+
+  private void handleStop(HttpExchange exchange) throws IOException {
+    if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+      respond(exchange, 405, "{\"error\": \"POST only\"}");
+      return;
+    }
+    status.stop();
+    respond(exchange, 202, "{\"stopping\": true}");
+  }
+
+  private void respond(HttpExchange exchange, int code, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
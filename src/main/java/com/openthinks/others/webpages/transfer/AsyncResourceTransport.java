@@ -0,0 +1,341 @@
+package com.openthinks.others.webpages.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpCookie;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.CredentialsProvider;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpProxy;
+import org.eclipse.jetty.client.ProxyConfiguration;
+import org.eclipse.jetty.client.Socks4Proxy;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.util.BasicAuthentication;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.gargoylesoftware.htmlunit.ProxyConfig;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebClientOptions;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.util.Cookie;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+
+/**
+ * The non-blocking HTTP transport of the resources which need no DOM, like images, fonts and videos.
+ * <BR>
+ * The requests of one run share a Jetty {@link HttpClient}, whose few selector threads serve all
+ * connections and keep at most <code>resource-per-host-limit</code> persistent connections to each
+ * host, the other requests wait in its queue. The body is handed to the caller as a stream while it
+ * is arriving, so it is written to disk without being buffered by HtmlUnit. The client is created by
+ * the first request and takes the proxy, SSL and timeout options of {@link WebClient}; each request
+ * takes the cookies of {@link WebClient} and the headers of the {@link WebRequest} built for it. The
+ * redirects are followed here instead of by the client, so each hop takes the cookies of its own URL
+ * and the cookies set by responses go back to {@link WebClient}.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class AsyncResourceTransport {
+  private static final int MAX_REDIRECTS = 20;
+  private static final int DISCARD_BUFFER_SIZE = 4096;
+  private final int maxConnectionsPerHost;
+  private HttpClient httpClient = null;
+  private long timeoutMillis = 0;
+  private boolean closed = false;
+
+  /**
+   * @param maxConnectionsPerHost the max number of connections to one host, 0 or less means the
+   *        default of {@link HttpClient}
+   */
+  public AsyncResourceTransport(int maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+  }
+
+  /**
+   * send the GET request and hand the body of successful response to the given handler
+   *
+   * @param webClient the {@link WebClient} which has the cookies and options
+   * @param wrq the {@link WebRequest} which has the URL and headers
+   * @param handler handle the body, called only for the status 2xx
+   * @return {@link Result}
+   * @throws IOException when failed to send, receive or handle, or the status is neither 2xx nor 304
+   */
+  public Result send(WebClient webClient, WebRequest wrq, BodyHandler handler) throws IOException {
+    HttpClient client = clientOf(webClient);
+    URL url = wrq.getUrl();
+    for (int redirects = 0;; redirects++) {
+      InputStreamResponseListener listener = new InputStreamResponseListener();
+      newRequest(client, webClient, wrq, url).send(listener);
+      Response response = awaitHeaders(listener, url);
+      storeCookies(webClient, url, response);
+      int status = response.getStatus();
+      String location = response.getHeaders().get(HttpHeader.LOCATION);
+      if (isRedirect(status) && location != null) {
+        discard(listener, url);
+        if (redirects >= MAX_REDIRECTS)
+          throw new IOException("Too many redirects from " + wrq.getUrl());
+        url = new URL(url, location);
+        continue;
+      }
+      long bytes = 0;
+      try (CountingInputStream body = new CountingInputStream(listener.getInputStream())) {
+        if (status >= 200 && status < 300) {
+          handler.handle(body);
+        } else if (status != 304) {
+          throw new IOException("The resource " + url + " responded " + status + " "
+              + response.getReason());
+        }
+        bytes = body.getByteCount();
+      }
+      // the handler may have swallowed the failure of reading, which aborts the exchange
+      awaitComplete(listener, url);
+      return new Result(status, response.getHeaders().get("ETag"),
+          response.getHeaders().get("Last-Modified"), bytes);
+    }
+  }
+
+  /**
+   * the request to given URL, with the headers of {@link WebRequest} and the cookies which
+   * {@link WebClient} has for the URL; each hop of redirect is a new request, so it takes the cookies
+   * of its own URL
+   */
+  private Request newRequest(HttpClient client, WebClient webClient, WebRequest wrq, URL url)
+      throws IOException {
+    Request request;
+    try {
+      request = client.newRequest(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      throw new IOException("Invalid resource URL " + url, e);
+    }
+    request.agent(webClient.getBrowserVersion().getUserAgent());
+    request.header(HttpHeader.ACCEPT_LANGUAGE, webClient.getBrowserVersion().getBrowserLanguage());
+    for (Map.Entry<String, String> header : wrq.getAdditionalHeaders().entrySet()) {
+      request.header(header.getKey(), header.getValue());
+    }
+    String cookies = cookieHeaderOf(webClient.getCookies(url));
+    if (!cookies.isEmpty())
+      request.header(HttpHeader.COOKIE, cookies);
+    if (timeoutMillis > 0)
+      request.idleTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    return request;
+  }
+
+  private static boolean isRedirect(int status) {
+    return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+  }
+
+  /**
+   * read the body of redirect to its end, so the connection is kept for the next request
+   */
+  private void discard(InputStreamResponseListener listener, URL url) throws IOException {
+    try (InputStream body = listener.getInputStream()) {
+      byte[] buffer = new byte[DISCARD_BUFFER_SIZE];
+      while (body.read(buffer) != -1) {
+        // nothing to keep
+      }
+    }
+    awaitComplete(listener, url);
+  }
+
+  /**
+   * put the cookies set by response into the {@link WebClient}, like the response loaded by itself
+   */
+  private static void storeCookies(WebClient webClient, URL url, Response response) {
+    if (!webClient.getCookieManager().isCookiesEnabled())
+      return;
+    for (String setCookie : response.getHeaders().getValuesList(HttpHeader.SET_COOKIE)) {
+      List<HttpCookie> cookies;
+      try {
+        cookies = HttpCookie.parse(setCookie);
+      } catch (IllegalArgumentException e) {
+        ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+        continue;
+      }
+      for (HttpCookie cookie : cookies) {
+        String domain = cookie.getDomain() != null ? cookie.getDomain() : url.getHost();
+        String path = cookie.getPath() != null ? cookie.getPath() : defaultPathOf(url);
+        int maxAge = (int) Math.max(-1, Math.min(Integer.MAX_VALUE, cookie.getMaxAge()));
+        webClient.getCookieManager().addCookie(
+            new Cookie(domain, cookie.getName(), cookie.getValue(), path, maxAge, cookie.getSecure()));
+      }
+    }
+  }
+
+  private static String defaultPathOf(URL url) {
+    String path = url.getPath();
+    int slash = path.lastIndexOf('/');
+    return slash <= 0 ? "/" : path.substring(0, slash);
+  }
+
+  private void awaitComplete(InputStreamResponseListener listener, URL url) throws IOException {
+    org.eclipse.jetty.client.api.Result result;
+    try {
+      result = listener.await(timeoutMillis > 0 ? timeoutMillis : Long.MAX_VALUE,
+          TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + url, e);
+    } catch (TimeoutException e) {
+      throw new IOException("Timeout while loading " + url, e);
+    }
+    if (result.isFailed())
+      throw new IOException("Failed to load " + url, result.getFailure());
+  }
+
+  private Response awaitHeaders(InputStreamResponseListener listener, URL url) throws IOException {
+    try {
+      return timeoutMillis > 0 ? listener.get(timeoutMillis, TimeUnit.MILLISECONDS)
+          : listener.get(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + url, e);
+    } catch (TimeoutException e) {
+      throw new IOException("Timeout while loading " + url, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      throw new IOException("Failed to load " + url, cause);
+    }
+  }
+
+  private synchronized HttpClient clientOf(WebClient webClient) throws IOException {
+    if (closed)
+      throw new IOException("The asynchronous transport was closed.");
+    if (httpClient != null)
+      return httpClient;
+    WebClientOptions options = webClient.getOptions();
+    SslContextFactory sslContextFactory = new SslContextFactory(options.isUseInsecureSSL());
+    // verify the host name like web client does, it is not verified by default
+    if (!options.isUseInsecureSSL())
+      sslContextFactory.setEndpointIdentificationAlgorithm("HTTPS");
+    HttpClient client = new HttpClient(sslContextFactory);
+    QueuedThreadPool executor = new QueuedThreadPool();
+    executor.setName("async-transport");
+    executor.setDaemon(true);
+    client.setExecutor(executor);
+    if (maxConnectionsPerHost > 0)
+      client.setMaxConnectionsPerDestination(maxConnectionsPerHost);
+    // the redirects are followed by send, which takes the cookies of web client for each hop
+    client.setFollowRedirects(false);
+    client.setCookieStore(new HttpCookieStore.Empty());
+    timeoutMillis = Math.max(0, options.getTimeout());
+    if (timeoutMillis > 0) {
+      client.setConnectTimeout(timeoutMillis);
+      client.setIdleTimeout(timeoutMillis);
+    }
+    configureProxy(client, options.getProxyConfig(), webClient.getCredentialsProvider());
+    try {
+      client.start();
+    } catch (Exception e) {
+      throw new IOException("Failed to start the asynchronous transport", e);
+    }
+    httpClient = client;
+    return client;
+  }
+
+  private static void configureProxy(HttpClient client, ProxyConfig proxyConfig,
+      CredentialsProvider credentialsProvider) {
+    if (proxyConfig == null || proxyConfig.getProxyHost() == null
+        || proxyConfig.getProxyHost().isEmpty())
+      return;
+    String host = proxyConfig.getProxyHost();
+    int port = proxyConfig.getProxyPort();
+    ProxyConfiguration.Proxy proxy =
+        proxyConfig.isSocksProxy() ? new Socks4Proxy(host, port) : new HttpProxy(host, port);
+    client.getProxyConfiguration().getProxies().add(proxy);
+    Credentials credentials =
+        credentialsProvider == null ? null : credentialsProvider.getCredentials(new AuthScope(host, port));
+    if (credentials != null && !proxyConfig.isSocksProxy()) {
+      client.getAuthenticationStore().addAuthenticationResult(new BasicAuthentication.BasicResult(
+          proxy.getURI(), HttpHeader.PROXY_AUTHORIZATION, credentials.getUserPrincipal().getName(),
+          credentials.getPassword()));
+    }
+  }
+
+  static String cookieHeaderOf(Set<Cookie> cookies) {
+    StringBuilder header = new StringBuilder();
+    for (Cookie cookie : cookies) {
+      if (header.length() > 0)
+        header.append("; ");
+      header.append(cookie.getName()).append('=').append(cookie.getValue());
+    }
+    return header.toString();
+  }
+
+  /**
+   * stop the client and close its connections
+   */
+  public synchronized void close() {
+    closed = true;
+    if (httpClient != null) {
+      try {
+        httpClient.stop();
+      } catch (Exception e) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      httpClient = null;
+    }
+  }
+
+  /**
+   * Handle the body of response, which is read while arriving
+   */
+  @FunctionalInterface
+  public interface BodyHandler {
+    void handle(InputStream body) throws IOException;
+  }
+
+  /**
+   * The status and validators of response
+   */
+  public static final class Result {
+    private final int statusCode;
+    private final String etag;
+    private final String lastModified;
+    private final long bytes;
+
+    Result(int statusCode, String etag, String lastModified, long bytes) {
+      this.statusCode = statusCode;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.bytes = bytes;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * @return the bytes of body read by handler
+     */
+    public long getBytes() {
+      return bytes;
+    }
+  }
+}
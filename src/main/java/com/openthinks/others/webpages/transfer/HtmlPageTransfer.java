@@ -21,8 +21,14 @@ package com.openthinks.others.webpages.transfer;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
+import com.gargoylesoftware.htmlunit.WebClient;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlImage;
 import com.gargoylesoftware.htmlunit.html.HtmlLink;
@@ -59,6 +65,9 @@ public class HtmlPageTransfer {
   ///////////////////////////////////////////////////////////////////////////
   protected File keepDir;
   private HtmlPage htmlPage;
+  private TransferContext context = TransferContext.create();
+  private WebClient resourceClient = null;
+  private final List<PendingKeep> pendingKeeps = new ArrayList<>();
 
   protected HtmlPageTransfer(HtmlPage htmlPage, File keepDir) {
     super();
@@ -73,18 +82,54 @@ public class HtmlPageTransfer {
     Objects.requireNonNull(htmlPage);
     Objects.requireNonNull(keepDir);
     ////////////////////// keep resource js, image, style
-    // script
-    processScriptElements();
-    // image
-    processImgElements();
-    // video
-    processVideoElements();
-    // style
-    processStylesheets();
+    try {
+      // script
+      processScriptElements();
+      // image
+      processImgElements();
+      // video
+      processVideoElements();
+      // style
+      processStylesheets();
+    } finally {
+      awaitResourceKeeps();
+    }
     // body
     processPage();
   }
 
+  /**
+   * keep the resource asynchronously if the context has resource executor, otherwise keep it
+   * directly
+   * 
+   * @param keeper {@link HtmlResourceKeeper}
+   */
+  protected void keep(HtmlResourceKeeper keeper) {
+    Optional<ExecutorService> executor = context.getResourceExecutor();
+    if (executor.isPresent()) {
+      pendingKeeps.add(new PendingKeep(keeper, keeper.keepAsync(executor.get())));
+    } else {
+      keeper.keep();
+    }
+  }
+
+  /**
+   * wait for all resources submitted by {@link #keep(HtmlResourceKeeper)}, then change their
+   * references to local on current thread
+   */
+  protected void awaitResourceKeeps() {
+    for (PendingKeep pendingKeep : pendingKeeps) {
+      boolean kept = false;
+      try {
+        kept = pendingKeep.future.join();
+      } catch (Exception e) {
+        ProcessLogger.error(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      pendingKeep.keeper.completeKeep(kept);
+    }
+    pendingKeeps.clear();
+  }
+
   void processPage() {
     final HtmlResourceKeeper keeper = new HtmlResourceKeeper(this, htmlPage, keepDir);
     keeper.initial(htmlPage.getUrl(), () -> {
@@ -105,7 +150,8 @@ public class HtmlPageTransfer {
       URL url = getFullyQualifiedUrl(link.getHrefAttribute());
       keeper.initial(url, () -> {
         return new HtmlCssResourceAgent(keeper);
-      }).keep();
+      });
+      keep(keeper);
     });
   }
 
@@ -118,7 +164,8 @@ public class HtmlPageTransfer {
       URL url = getFullyQualifiedUrl(imgNode.getAttribute("src"));
       keeper.initial(url, () -> {
         return new HtmlImageResourceAgent(keeper);
-      }).keep();
+      });
+      keep(keeper);
 
     });
   }
@@ -133,7 +180,8 @@ public class HtmlPageTransfer {
       URL url = getFullyQualifiedUrl(el.getAttribute("src"));
       keeper.initial(url, () -> {
         return new HtmlVideoResourceAgent(keeper);
-      }).keep();
+      });
+      keep(keeper);
     });
   }
 
@@ -147,7 +195,8 @@ public class HtmlPageTransfer {
       URL url = getFullyQualifiedUrl(scriptNode.getAttribute("src"));
       keeper.initial(url, () -> {
         return new HtmlJsResourceAgent(keeper);
-      }).keep();
+      });
+      keep(keeper);
     });
   }
 
@@ -211,8 +260,49 @@ public class HtmlPageTransfer {
     return RESOURCE_STYLE_REFERENCE_DIR;
   }
 
+  public TransferContext getContext() {
+    return context;
+  }
+
+  /**
+   * set the shared context of current download run
+   * 
+   * @param context {@link TransferContext}
+   */
+  public void setContext(TransferContext context) {
+    this.context = Objects.requireNonNull(context);
+  }
+
+  /**
+   * the client which loads the resources of page, the client of page by default
+   * 
+   * @return {@link WebClient}
+   */
+  public WebClient getResourceClient() {
+    return resourceClient != null ? resourceClient : htmlPage.getWebClient();
+  }
+
+  /**
+   * set the client which loads the resources, when the client of page is used by another thread
+   * 
+   * @param resourceClient {@link WebClient}, null for the client of page
+   */
+  public void setResourceClient(WebClient resourceClient) {
+    this.resourceClient = resourceClient;
+  }
+
   public static HtmlPageTransfer create(HtmlPage htmlPage, File keepDir) {
     return new HtmlPageTransfer(htmlPage, keepDir);
   }
 
+  private static final class PendingKeep {
+    final HtmlResourceKeeper keeper;
+    final CompletableFuture<Boolean> future;
+
+    PendingKeep(HtmlResourceKeeper keeper, CompletableFuture<Boolean> future) {
+      this.keeper = keeper;
+      this.future = future;
+    }
+  }
+
 }
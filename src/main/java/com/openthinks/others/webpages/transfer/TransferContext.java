@@ -0,0 +1,285 @@
+package com.openthinks.others.webpages.transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+import com.openthinks.others.webpages.keeper.CrawlManifest;
+import com.openthinks.others.webpages.keeper.ResourceIndex;
+import com.openthinks.others.webpages.keeper.ResourceKeepListener;
+import com.openthinks.others.webpages.metrics.CrawlMetrics;
+import com.openthinks.others.webpages.metrics.MetricsKeepListener;
+import com.openthinks.others.webpages.util.ContentStore;
+import com.openthinks.others.webpages.util.HostConcurrencyLimiter;
+import com.openthinks.others.webpages.util.ResourceNaming;
+import com.openthinks.others.webpages.util.ResponseCache;
+import com.openthinks.others.webpages.util.ResourceType;
+
+/**
+ * The shared state of one download run, used by all {@link HtmlPageTransfer} of the run
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class TransferContext {
+  public static final String METRICS_REPORT_NAME = "crawl-metrics.json";
+  private ExecutorService resourceExecutor = null;
+  private ExecutorService referenceExecutor = null;
+  private HostConcurrencyLimiter hostLimiter = HostConcurrencyLimiter.unlimited();
+  private ResourceIndex resourceIndex = new ResourceIndex();
+  private boolean normalizeImages = false;
+  private final ConcurrentMap<String, ResourceType> referenceTypes = new ConcurrentHashMap<>();
+  private final CrawlMetrics metrics = new CrawlMetrics();
+  private final List<ResourceKeepListener> keepListeners = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService summaryExecutor = null;
+  private File metricsReport = null;
+  private ResponseCache responseCache = null;
+  private ContentStore contentStore = null;
+  private ResourceNaming resourceNaming = ResourceNaming.LEGACY;
+  private AsyncResourceTransport asyncTransport = null;
+
+  protected TransferContext() {
+    super();
+    keepListeners.add(new MetricsKeepListener(metrics));
+  }
+
+  /**
+   * create a context which keeps resources synchronously
+   * 
+   * @return {@link TransferContext}
+   */
+  public static TransferContext create() {
+    return new TransferContext();
+  }
+
+  /**
+   * create a context by the configuration
+   * 
+   * @param config {@link WebPagesConfigure}
+   * @return {@link TransferContext}
+   */
+  public static TransferContext create(WebPagesConfigure config) {
+    TransferContext context = new TransferContext();
+    int workerCount = config.getResourceWorkerCount();
+    if (workerCount > 1) {
+      context.resourceExecutor =
+          Executors.newFixedThreadPool(workerCount, new NamedThreadFactory("resource-keeper"));
+      // only the leaf references run here, the nested stylesheets are kept on the caller thread
+      context.referenceExecutor =
+          Executors.newFixedThreadPool(workerCount, new NamedThreadFactory("reference-keeper"));
+    }
+    context.hostLimiter = new HostConcurrencyLimiter(config.getResourcePerHostLimit());
+    context.normalizeImages = config.isNormalizeImages();
+    context.responseCache = ResponseCache.shared(config).orElse(null);
+    context.contentStore = ContentStore.of(config).orElse(null);
+    context.resourceNaming = ResourceNaming.of(config.getResourceNaming());
+    if (config.isAsyncTransport()) {
+      context.asyncTransport = new AsyncResourceTransport(config.getResourcePerHostLimit());
+    }
+    if (config.isKeepManifest() && config.getKeepDir().isPresent()) {
+      File bookDir = config.getKeepDir().get();
+      try {
+        context.resourceIndex = new ResourceIndex(CrawlManifest.open(bookDir), config.isIncremental());
+      } catch (IOException e) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+    }
+    if (config.isMetricsReport() && config.getKeepDir().isPresent()) {
+      context.metricsReport = new File(config.getKeepDir().get(), METRICS_REPORT_NAME);
+    }
+    int summaryInterval = config.getMetricsSummaryInterval();
+    if (summaryInterval > 0) {
+      context.summaryExecutor =
+          Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("metrics-summary"));
+      context.summaryExecutor.scheduleAtFixedRate(() -> {
+        ProcessLogger.info("Crawl metrics: " + context.metrics.summary());
+      }, summaryInterval, summaryInterval, TimeUnit.SECONDS);
+    }
+    return context;
+  }
+
+  /**
+   * the executor for keeping resources asynchronously, empty means keep them synchronously
+   * 
+   * @return Optional of {@link ExecutorService}
+   */
+  public Optional<ExecutorService> getResourceExecutor() {
+    return Optional.ofNullable(resourceExecutor);
+  }
+
+  /**
+   * the executor for keeping the references of stylesheets, bounded by
+   * <code>resource-worker-count</code>; empty means keep them synchronously
+   * 
+   * @return Optional of {@link ExecutorService}
+   */
+  public Optional<ExecutorService> getReferenceExecutor() {
+    return Optional.ofNullable(referenceExecutor);
+  }
+
+  /**
+   * the metrics of current run
+   * 
+   * @return {@link CrawlMetrics}
+   */
+  public CrawlMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * the response cache shared by all web clients of the process, empty means no shared cache
+   * 
+   * @return Optional of {@link ResponseCache}
+   */
+  public Optional<ResponseCache> getResponseCache() {
+    return Optional.ofNullable(responseCache);
+  }
+
+  /**
+   * the store which the kept resources are linked to, empty means each file is kept by itself
+   * 
+   * @return Optional of {@link ContentStore}
+   */
+  public Optional<ContentStore> getContentStore() {
+    return Optional.ofNullable(contentStore);
+  }
+
+  /**
+   * the transport of the resources which need no DOM, empty means load them by web client
+   * 
+   * @return Optional of {@link AsyncResourceTransport}
+   */
+  public Optional<AsyncResourceTransport> getAsyncTransport() {
+    return Optional.ofNullable(asyncTransport);
+  }
+
+  /**
+   * the naming of kept resources
+   * 
+   * @return {@link ResourceNaming}
+   */
+  public ResourceNaming getResourceNaming() {
+    return resourceNaming;
+  }
+
+  public void setResourceNaming(ResourceNaming resourceNaming) {
+    this.resourceNaming = resourceNaming;
+  }
+
+  /**
+   * the listeners added to every resource keeper of current run
+   * 
+   * @return the list of {@link ResourceKeepListener}
+   */
+  public List<ResourceKeepListener> getKeepListeners() {
+    return keepListeners;
+  }
+
+  public void addKeepListener(ResourceKeepListener keepListener) {
+    keepListeners.add(keepListener);
+  }
+
+  public HostConcurrencyLimiter getHostLimiter() {
+    return hostLimiter;
+  }
+
+  /**
+   * the index of kept resources of current run
+   * 
+   * @return {@link ResourceIndex}
+   */
+  public ResourceIndex getResourceIndex() {
+    return resourceIndex;
+  }
+
+  /**
+   * the type of the resource referenced by css, which was decided by previous stylesheet
+   * 
+   * @param url the reference URL
+   * @return {@link ResourceType} or null if unknown
+   */
+  public ResourceType getReferenceType(URL url) {
+    return referenceTypes.get(url.toExternalForm());
+  }
+
+  public void putReferenceType(URL url, ResourceType type) {
+    referenceTypes.putIfAbsent(url.toExternalForm(), type);
+  }
+
+  /**
+   * decode and re-encode the images instead of keeping their original bytes
+   * 
+   * @return true or false
+   */
+  public boolean isNormalizeImages() {
+    return normalizeImages;
+  }
+
+  public void setNormalizeImages(boolean normalizeImages) {
+    this.normalizeImages = normalizeImages;
+  }
+
+  /**
+   * release the resources hold by this context
+   */
+  public void close() {
+    if (summaryExecutor != null) {
+      summaryExecutor.shutdownNow();
+    }
+    if (responseCache != null) {
+      ProcessLogger.info("Response cache: " + responseCache);
+    }
+    if (contentStore != null) {
+      ProcessLogger.info("Content store: " + contentStore);
+    }
+    if (metricsReport != null) {
+      try {
+        metrics.writeReport(metricsReport);
+        ProcessLogger.info("Crawl metrics: " + metrics.summary());
+      } catch (IOException e) {
+        ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+      metricsReport = null;
+    }
+    if (resourceExecutor != null) {
+      resourceExecutor.shutdownNow();
+    }
+    if (asyncTransport != null) {
+      asyncTransport.close();
+    }
+    if (referenceExecutor != null) {
+      referenceExecutor.shutdownNow();
+    }
+    resourceIndex.clear();
+    referenceTypes.clear();
+  }
+
+  static final class NamedThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    NamedThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+
+/**
+ * The content addressed store of kept resources, which keeps each content once by its SHA-256.<BR>
+ * The file of book is a hard link or symbolic link to the content in store, so the same script, font
+ * or image of many books takes the disk once; the duplicates are found by content instead of name.
+ * The linked files are always replaced by rename, never written in place, so one book can not change
+ * the content of the others.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class ContentStore {
+  public static final String STORE_DIR = ".keeper-store";
+  private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The link from the file of book to its content in store
+   */
+  public enum LinkMode {
+    HARDLINK, SYMLINK;
+
+    /**
+     * @param value the value of <code>content-store</code>
+     * @return {@link LinkMode} or null for none or unknown value
+     */
+    public static LinkMode of(String value) {
+      for (LinkMode mode : values()) {
+        if (mode.name().equalsIgnoreCase(value))
+          return mode;
+      }
+      return null;
+    }
+  }
+
+  private final Path dir;
+  private final LinkMode mode;
+  private final AtomicLong stored = new AtomicLong();
+  private final AtomicLong deduplicated = new AtomicLong();
+  private final AtomicLong savedBytes = new AtomicLong();
+  private final AtomicLong copied = new AtomicLong();
+
+  public ContentStore(File dir, LinkMode mode) {
+    this.dir = dir.toPath().toAbsolutePath().normalize();
+    this.mode = mode;
+  }
+
+  /**
+   * the content store of given configuration, in the save directory of books by default
+   *
+   * @param config {@link WebPagesConfigure} of the book
+   * @return Optional of {@link ContentStore}, empty if <code>content-store</code> is none
+   */
+  public static Optional<ContentStore> of(WebPagesConfigure config) {
+    String value = config.getContentStore();
+    LinkMode mode = LinkMode.of(value);
+    if (mode == null) {
+      if (!WebPagesConfigure.CONTENT_STORE_NONE.equals(value))
+        ProcessLogger.warn("Unknown content store " + value + ", the files are kept by themselves.");
+      return Optional.empty();
+    }
+    Optional<File> storeDir = config.getContentStoreDir();
+    if (!storeDir.isPresent() && config.getKeepDir().isPresent()) {
+      File keepDir = config.getKeepDir().get().getAbsoluteFile();
+      // the book directory is in the save dir when the book has its name
+      File saveDir = config.getBookName().isPresent() ? keepDir.getParentFile() : keepDir;
+      storeDir = Optional.of(new File(saveDir, STORE_DIR));
+    }
+    return storeDir.map((file) -> new ContentStore(file, mode));
+  }
+
+  /**
+   * move the written file into the store and link the target to the content
+   *
+   * @param written the file which has the content, beside the target; it is moved or deleted
+   * @param target the file of book
+   * @return true if the target is replaced, false if it was linked to the same content
+   * @throws IOException when failed to store or link
+   */
+  public boolean commit(Path written, Path target) throws IOException {
+    long size = Files.size(written);
+    Path blob = blobPathOf(digestOf(written));
+    if (Files.exists(blob) && Files.exists(target) && Files.isSameFile(blob, target)) {
+      Files.delete(written);
+      return false;
+    }
+    if (publish(written, blob)) {
+      stored.incrementAndGet();
+    } else {
+      deduplicated.incrementAndGet();
+      savedBytes.addAndGet(size);
+    }
+    // the link is created beside the target and renamed to it
+    Files.deleteIfExists(written);
+    link(written, blob, target);
+    ResourceWriter.moveAtomically(written, target);
+    return true;
+  }
+
+  /**
+   * put the content into store unless it is there
+   *
+   * @return true if the content is new
+   */
+  private boolean publish(Path written, Path blob) throws IOException {
+    if (Files.exists(blob))
+      return false;
+    Files.createDirectories(blob.getParent());
+    try {
+      // fails if another thread has stored the same content
+      Files.createLink(blob, written);
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      return false;
+    } catch (IOException | UnsupportedOperationException e) {
+      Path temp = ResourceWriter.tempPathOf(blob.toFile());
+      try {
+        Files.copy(written, temp);
+        ResourceWriter.moveAtomically(temp, blob);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * create the link to content at given path, the symbolic link falls back to hard link and the hard
+   * link to copy where the file system does not support them
+   */
+  private void link(Path link, Path blob, Path target) throws IOException {
+    if (mode == LinkMode.SYMLINK) {
+      try {
+        // relative to the target, so the save dir can be moved as a whole
+        Path parent = target.toAbsolutePath().normalize().getParent();
+        Files.createSymbolicLink(link, parent.relativize(blob));
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      }
+    }
+    try {
+      Files.createLink(link, blob);
+    } catch (IOException | UnsupportedOperationException e) {
+      ProcessLogger.debug(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      Files.copy(blob, link);
+      copied.incrementAndGet();
+    }
+  }
+
+  private Path blobPathOf(String digest) {
+    return dir.resolve(digest.substring(0, 2)).resolve(digest);
+  }
+
+  private static String digestOf(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+    try (InputStream in = Files.newInputStream(file)) {
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, count);
+      }
+    }
+    byte[] hash = digest.digest();
+    StringBuilder hex = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  public File getDir() {
+    return dir.toFile();
+  }
+
+  public LinkMode getMode() {
+    return mode;
+  }
+
+  @Override
+  public String toString() {
+    return dir + " [" + mode + "] stored=" + stored.get() + ", deduplicated=" + deduplicated.get()
+        + " (" + savedBytes.get() / 1024 + " KB saved), copied=" + copied.get();
+  }
+}
@@ -0,0 +1,245 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+
+/**
+ * The single pass tokenizer of stylesheet, which rewrites the references of <code>url()</code> and
+ * <code>@import</code> while copying the stylesheet; the comments and strings are copied as they are,
+ * so the references inside them are not touched
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class CssReferenceTokenizer {
+
+  /**
+   * rewrite one reference of stylesheet
+   */
+  @FunctionalInterface
+  public interface ReferenceRewriter {
+    /**
+     * @param reference the reference without quotes, like <code>../img/a.png</code>
+     * @param imported true if it is referenced by <code>@import</code>
+     * @return the new reference, or null to keep the reference as it is
+     * @throws IOException
+     */
+    String rewrite(String reference, boolean imported) throws IOException;
+  }
+
+  private static final String URL_FUNCTION = "url(";
+  private static final String IMPORT_RULE = "@import";
+
+  private final ReferenceRewriter rewriter;
+
+  public CssReferenceTokenizer(ReferenceRewriter rewriter) {
+    this.rewriter = rewriter;
+  }
+
+  /**
+   * rewrite the references of stylesheet
+   * 
+   * @param css the stylesheet
+   * @return StringBuilder the rewritten stylesheet
+   * @throws IOException
+   */
+  public StringBuilder rewrite(CharSequence css) throws IOException {
+    StringBuilder out = new StringBuilder(css.length() + 256);
+    rewrite(css, out);
+    return out;
+  }
+
+  /**
+   * rewrite the references of stylesheet into the given output, like {@link StringBuilder} or
+   * {@link java.io.Writer}
+   * 
+   * @param css the stylesheet
+   * @param out Appendable
+   * @throws IOException
+   */
+  public void rewrite(CharSequence css, Appendable out) throws IOException {
+    Cursor cursor = new Cursor(css, out);
+    int len = css.length();
+    int i = 0;
+    while (i < len) {
+      char c = css.charAt(i);
+      if (c == '/' && i + 1 < len && css.charAt(i + 1) == '*') {
+        int end = indexOf(css, "*/", i + 2);
+        i = end < 0 ? len : end + 2;
+      } else if (c == '"' || c == '\'') {
+        int end = closingQuote(css, i);
+        i = end < 0 ? i + 1 : end + 1;
+      } else if (c == '\\') {
+        i += 2;
+      } else if ((c == 'u' || c == 'U') && isTokenStart(css, i) && startsWith(css, i, URL_FUNCTION)) {
+        i = rewriteUrl(cursor, i, false);
+      } else if (c == '@' && startsWith(css, i, IMPORT_RULE)) {
+        i = rewriteImport(cursor, i);
+      } else {
+        i++;
+      }
+    }
+    cursor.flush(len);
+  }
+
+  /**
+   * @return the index after the <code>url()</code> or after its name if it is malformed
+   */
+  private int rewriteUrl(Cursor cursor, int start, boolean imported) throws IOException {
+    CharSequence css = cursor.css;
+    int open = start + URL_FUNCTION.length();
+    int p = skipWhitespace(css, open);
+    int refStart;
+    int refEnd;
+    boolean quoted = p < css.length() && (css.charAt(p) == '"' || css.charAt(p) == '\'');
+    if (quoted) {
+      refStart = p + 1;
+      refEnd = closingQuote(css, p);
+      if (refEnd < 0) {
+        return open;
+      }
+      p = skipWhitespace(css, refEnd + 1);
+    } else {
+      refStart = p;
+      refEnd = p;
+      while (refEnd < css.length() && isUnquotedUrlChar(css.charAt(refEnd))) {
+        refEnd++;
+      }
+      p = skipWhitespace(css, refEnd);
+    }
+    if (p >= css.length() || css.charAt(p) != ')') {
+      return open;
+    }
+    cursor.replace(refStart, refEnd, imported, quoted);
+    return p + 1;
+  }
+
+  /**
+   * @return the index after the reference of <code>@import</code>
+   */
+  private int rewriteImport(Cursor cursor, int start) throws IOException {
+    CharSequence css = cursor.css;
+    int p = skipWhitespace(css, start + IMPORT_RULE.length());
+    if (p >= css.length()) {
+      return p;
+    }
+    char c = css.charAt(p);
+    if (c == '"' || c == '\'') {
+      int end = closingQuote(css, p);
+      if (end < 0) {
+        return p + 1;
+      }
+      cursor.replace(p + 1, end, true, true);
+      return end + 1;
+    }
+    if (startsWith(css, p, URL_FUNCTION)) {
+      return rewriteUrl(cursor, p, true);
+    }
+    return p;
+  }
+
+  /**
+   * the output state, the text between the last flushed index and current reference is copied
+   * lazily
+   */
+  private final class Cursor {
+    private final CharSequence css;
+    private final Appendable out;
+    private int flushed = 0;
+
+    Cursor(CharSequence css, Appendable out) {
+      this.css = css;
+      this.out = out;
+    }
+
+    void replace(int refStart, int refEnd, boolean imported, boolean quoted) throws IOException {
+      String reference = css.subSequence(refStart, refEnd).toString();
+      String replacement = rewriter.rewrite(reference, imported);
+      if (replacement == null || replacement.equals(reference)) {
+        return;
+      }
+      flush(refStart);
+      if (!quoted && needQuote(replacement)) {
+        out.append('"').append(replacement).append('"');
+      } else {
+        out.append(replacement);
+      }
+      flushed = refEnd;
+    }
+
+    void flush(int end) throws IOException {
+      if (end > flushed) {
+        out.append(css, flushed, end);
+        flushed = end;
+      }
+    }
+  }
+
+  static int closingQuote(CharSequence css, int quoteIndex) {
+    char quote = css.charAt(quoteIndex);
+    for (int i = quoteIndex + 1; i < css.length(); i++) {
+      char c = css.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == quote) {
+        return i;
+      } else if (c == '\n' || c == '\r' || c == '\f') {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  static int indexOf(CharSequence css, String target, int from) {
+    for (int i = from, last = css.length() - target.length(); i <= last; i++) {
+      if (startsWith(css, i, target)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static boolean startsWith(CharSequence css, int offset, String prefix) {
+    if (offset + prefix.length() > css.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (Character.toLowerCase(css.charAt(offset + i)) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTokenStart(CharSequence css, int index) {
+    if (index == 0) {
+      return true;
+    }
+    char c = css.charAt(index - 1);
+    return !(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '\\');
+  }
+
+  private static boolean isUnquotedUrlChar(char c) {
+    return c != ')' && c != '(' && c != '"' && c != '\'' && !isWhitespace(c);
+  }
+
+  private static boolean needQuote(String reference) {
+    for (int i = 0; i < reference.length(); i++) {
+      if (!isUnquotedUrlChar(reference.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int skipWhitespace(CharSequence css, int from) {
+    int i = from;
+    while (i < css.length() && isWhitespace(css.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+}
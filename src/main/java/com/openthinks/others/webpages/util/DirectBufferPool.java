@@ -0,0 +1,67 @@
+package com.openthinks.others.webpages.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of reusable direct {@link ByteBuffer}
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class DirectBufferPool {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final int DEFAULT_MAX_POOLED = 32;
+  private static final DirectBufferPool SHARED =
+      new DirectBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+  private final int bufferSize;
+  private final int maxPooled;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  public DirectBufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  public static DirectBufferPool shared() {
+    return SHARED;
+  }
+
+  /**
+   * take a cleared buffer from pool, or allocate a new one if pool is empty
+   * 
+   * @return {@link ByteBuffer}
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    pooled.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * give the buffer back to pool, it is dropped when the pool is full
+   * 
+   * @param buffer {@link ByteBuffer} returned by {@link #acquire()}
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize)
+      return;
+    if (pooled.incrementAndGet() > maxPooled) {
+      pooled.decrementAndGet();
+      return;
+    }
+    buffers.offer(buffer);
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+}
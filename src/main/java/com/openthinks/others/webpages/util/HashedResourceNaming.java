@@ -0,0 +1,73 @@
+package com.openthinks.others.webpages.util;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * The naming of <code>stem-hash.ext</code>: the stem is the file name of URL path without extension,
+ * the hash is the first {@value #HASH_LENGTH} hex digits of SHA-1 of the URL without fragment, and
+ * the extension comes from the URL path or the default suffix of resource type; the name is at most
+ * about 70 characters whatever the URL is.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class HashedResourceNaming implements ResourceNaming {
+  public static final int HASH_LENGTH = 12;
+  public static final int MAX_STEM_LENGTH = 48;
+  public static final int MAX_EXTENSION_LENGTH = 8;
+  private static final String EMPTY_STEM = "res";
+
+  @Override
+  public String nameOf(URL url, String defaultSuffix) {
+    String path = url.getPath();
+    String fileName = path.substring(path.lastIndexOf('/') + 1);
+    String stem = fileName;
+    String suffix = defaultSuffix == null ? "" : defaultSuffix;
+    int dot = fileName.lastIndexOf('.');
+    if (dot != -1) {
+      stem = fileName.substring(0, dot);
+      String extension = fileName.substring(dot + 1);
+      if (isExtension(extension))
+        suffix = "." + extension.toLowerCase(Locale.ROOT);
+    }
+    stem = UNSAFE_CHARS.matcher(stem).replaceAll("_");
+    if (stem.length() > MAX_STEM_LENGTH)
+      stem = stem.substring(0, MAX_STEM_LENGTH);
+    if (stem.isEmpty())
+      stem = EMPTY_STEM;
+    return stem + "-" + hashOf(url) + suffix;
+  }
+
+  private static boolean isExtension(String extension) {
+    if (extension.isEmpty() || extension.length() > MAX_EXTENSION_LENGTH)
+      return false;
+    for (int i = 0; i < extension.length(); i++) {
+      if (!Character.isLetterOrDigit(extension.charAt(i)) || extension.charAt(i) > 0x7F)
+        return false;
+    }
+    return true;
+  }
+
+  private static String hashOf(URL url) {
+    String key = url.toExternalForm();
+    int fragment = key.indexOf('#');
+    if (fragment != -1)
+      key = key.substring(0, fragment);
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    char[] hex = new char[HASH_LENGTH];
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int b = digest[i / 2];
+      hex[i] = Character.forDigit(i % 2 == 0 ? (b >> 4) & 0xF : b & 0xF, 16);
+    }
+    return new String(hex);
+  }
+}
@@ -0,0 +1,72 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limit the number of concurrent requests to the same host
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class HostConcurrencyLimiter {
+  private final int permitsPerHost;
+  private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+  /**
+   * @param permitsPerHost max concurrent requests for each host, no limit when less than 1
+   */
+  public HostConcurrencyLimiter(int permitsPerHost) {
+    this.permitsPerHost = permitsPerHost;
+  }
+
+  public static HostConcurrencyLimiter unlimited() {
+    return new HostConcurrencyLimiter(0);
+  }
+
+  public int getPermitsPerHost() {
+    return permitsPerHost;
+  }
+
+  /**
+   * execute the action when a permit of the host of given URL is available
+   * 
+   * @param url the request URL
+   * @param action the request action
+   * @return T the result of action
+   * @throws IOException when the action failed or the waiting interrupted
+   */
+  public <T> T execute(URL url, IOAction<T> action) throws IOException {
+    if (permitsPerHost <= 0 || url == null) {
+      return action.run();
+    }
+    Semaphore permits = hostPermits.computeIfAbsent(hostOf(url), (host) -> {
+      return new Semaphore(permitsPerHost, true);
+    });
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted when waiting for host " + url.getHost());
+    }
+    try {
+      return action.run();
+    } finally {
+      permits.release();
+    }
+  }
+
+  static String hostOf(URL url) {
+    return url.getHost().toLowerCase(Locale.ROOT) + ":" + url.getPort();
+  }
+
+  @FunctionalInterface
+  public interface IOAction<T> {
+    T run() throws IOException;
+  }
+}
@@ -0,0 +1,87 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.html.HtmlHtml;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+
+/**
+ * Serialize the DOM of {@link HtmlPage} straight into a {@link Writer}.<BR>
+ * The output is the same as {@link HtmlPage#asXml()} except that the XML declaration is replaced by
+ * the HTML5 doctype; the nodes are printed one by one by HtmlUnit, so the document is never built
+ * as a whole string.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class HtmlPageSerializer {
+  public static final String DOCTYPE = "<!DOCTYPE html>";
+  private static final String LINE_END = "\r\n";
+  private static final Method PRINT_XML = printXmlMethod();
+
+  private HtmlPageSerializer() {}
+
+  /**
+   * write the page into the given writer
+   *
+   * @param page {@link HtmlPage}
+   * @param out {@link Writer}, flushed but not closed by this method
+   * @throws IOException when failed to write
+   */
+  public static void write(HtmlPage page, Writer out) throws IOException {
+    DomElement root = page.getDocumentElement();
+    if (root == null)
+      return;
+    PrintWriter printWriter = new PrintWriter(out);
+    if (PRINT_XML == null) {
+      printWriter.print(replaceDeclaration(root.asXml()));
+    } else {
+      if (root instanceof HtmlHtml) {
+        printWriter.print(DOCTYPE);
+        printWriter.print(LINE_END);
+      }
+      try {
+        PRINT_XML.invoke(root, "", printWriter);
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        throw new IOException(cause);
+      }
+    }
+    // PrintWriter keeps the failure of underlying writer as its error state
+    if (printWriter.checkError())
+      throw new IOException("Failed to write page " + page.getUrl());
+  }
+
+  private static String replaceDeclaration(String xml) {
+    if (xml.startsWith("<?xml")) {
+      int end = xml.indexOf("?>");
+      if (end != -1)
+        return DOCTYPE + xml.substring(end + 2);
+    }
+    return xml;
+  }
+
+  private static Method printXmlMethod() {
+    try {
+      Method method = DomNode.class.getDeclaredMethod("printXml", String.class, PrintWriter.class);
+      method.setAccessible(true);
+      return method;
+    } catch (NoSuchMethodException | RuntimeException e) {
+      // serialize by asXml instead
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The image format recognized by the magic bytes of content
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public enum ImageFormat {
+  PNG("png"), JPEG("jpeg"), GIF("gif"), BMP("bmp"), TIFF("tiff"), WEBP("webp"), ICO("ico"), SVG(
+      "svg"), UNKNOWN("");
+
+  /**
+   * the bytes enough to recognize all formats
+   */
+  public static final int HEAD_SIZE = 16;
+
+  private final String formatName;
+
+  private ImageFormat(String formatName) {
+    this.formatName = formatName;
+  }
+
+  /**
+   * the format name for {@link javax.imageio.ImageIO}
+   * 
+   * @return String
+   */
+  public String getFormatName() {
+    return formatName;
+  }
+
+  /**
+   * the format which can be decoded by {@link javax.imageio.ImageIO}
+   * 
+   * @return true or false
+   */
+  public boolean isRaster() {
+    return this == PNG || this == JPEG || this == GIF || this == BMP || this == TIFF;
+  }
+
+  /**
+   * recognize the format by the head bytes of content
+   * 
+   * @param head the head bytes
+   * @param length the valid length of head
+   * @return {@link ImageFormat}
+   */
+  public static ImageFormat sniff(byte[] head, int length) {
+    if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N'
+        && head[3] == 'G')
+      return PNG;
+    if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8
+        && (head[2] & 0xFF) == 0xFF)
+      return JPEG;
+    if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8')
+      return GIF;
+    if (length >= 2 && head[0] == 'B' && head[1] == 'M')
+      return BMP;
+    if (length >= 4 && ((head[0] == 'I' && head[1] == 'I' && head[2] == 42 && head[3] == 0)
+        || (head[0] == 'M' && head[1] == 'M' && head[2] == 0 && head[3] == 42)))
+      return TIFF;
+    if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+        && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P')
+      return WEBP;
+    if (length >= 4 && head[0] == 0 && head[1] == 0 && head[2] == 1 && head[3] == 0)
+      return ICO;
+    String text = new String(head, 0, Math.max(0, length), StandardCharsets.ISO_8859_1).trim();
+    if (text.startsWith("<?xml") || text.startsWith("<svg") || text.startsWith("<!--"))
+      return SVG;
+    return UNKNOWN;
+  }
+
+  /**
+   * recognize the format by the head bytes of stream, the stream is not closed
+   * 
+   * @param ins {@link InputStream}
+   * @return {@link ImageFormat}
+   * @throws IOException when failed to read
+   */
+  public static ImageFormat sniff(InputStream ins) throws IOException {
+    byte[] head = new byte[HEAD_SIZE];
+    int length = 0;
+    int size = -1;
+    while (length < HEAD_SIZE && (size = ins.read(head, length, HEAD_SIZE - length)) != -1) {
+      length += size;
+    }
+    return sniff(head, length);
+  }
+}
@@ -36,6 +36,9 @@ public class ResourceInfo {
 	private URL resourceURL;
 	private String resourceName;
 	private String resourcePath;
+	private String etag;
+	private String lastModified;
+	private String charset;
 
 	public ResourceType getResourceType() {
 		return resourceType;
@@ -61,6 +64,42 @@ public class ResourceInfo {
 		this.resourcePath = resourcePath;
 	}
 
+	/**
+	 * the ETag response header of the resource
+	 * @return String or null
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	public void setEtag(String etag) {
+		this.etag = etag;
+	}
+
+	/**
+	 * the Last-Modified response header of the resource
+	 * @return String or null
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(String lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * the charset which the text resource is read in, when it does not declare its own
+	 * @return String or null if not a text resource or unknown
+	 */
+	public String getCharset() {
+		return charset;
+	}
+
+	public void setCharset(String charset) {
+		this.charset = charset;
+	}
+
 	public URL getResourceURL() {
 		return resourceURL;
 	}
@@ -0,0 +1,61 @@
+package com.openthinks.others.webpages.util;
+
+import java.net.URL;
+import java.util.regex.Pattern;
+
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+
+/**
+ * The naming strategy of kept resources, which gives the local file name of a resource URL.<BR>
+ * {@link #LEGACY} leaves the naming to each resource agent, which takes the last segment of URL;
+ * {@link #HASHED} adds the short hash of full URL to the name, so the resources of same file name in
+ * different directories do not collide and the query string does not make the name longer. Other
+ * strategies are configured by the name of class which implements this interface.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+@FunctionalInterface
+public interface ResourceNaming {
+  /**
+   * the runs of characters which are not safe in file name
+   */
+  Pattern UNSAFE_CHARS = Pattern.compile("[^0-9A-Za-z_\\-\\.]+");
+  /**
+   * each character which is not safe in file name
+   */
+  Pattern UNSAFE_CHAR = Pattern.compile("[^0-9A-Za-z_\\-\\.]");
+
+  ResourceNaming LEGACY = (url, defaultSuffix) -> null;
+  ResourceNaming HASHED = new HashedResourceNaming();
+
+  /**
+   * @param url the resource URL
+   * @param defaultSuffix the suffix like <code>.jpg</code> for the URL without extension, null for
+   *        none
+   * @return the file name, or null to let the resource agent name it
+   */
+  String nameOf(URL url, String defaultSuffix);
+
+  /**
+   * the strategy of given name
+   *
+   * @param value <code>legacy</code>, <code>hashed</code> or the name of class which implements
+   *        {@link ResourceNaming}
+   * @return {@link ResourceNaming}, {@link #LEGACY} for unknown value
+   */
+  static ResourceNaming of(String value) {
+    if (value == null || value.trim().isEmpty() || "legacy".equalsIgnoreCase(value.trim()))
+      return LEGACY;
+    if ("hashed".equalsIgnoreCase(value.trim()))
+      return HASHED;
+    try {
+      return (ResourceNaming) Class.forName(value.trim()).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(),
+          "Unknown resource naming " + value + ", the legacy naming is used.");
+      return LEGACY;
+    }
+  }
+}
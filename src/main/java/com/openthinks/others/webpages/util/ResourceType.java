@@ -24,9 +24,11 @@
 */
 package com.openthinks.others.webpages.util;
 
+import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -52,6 +54,37 @@ public enum ResourceType {
 		return false;
 	}
 
+	/**
+	 * get the resource type by the suffix of URL path, without any request
+	 * @param url URL
+	 * @return ResourceType or null if the suffix is unknown
+	 */
+	public static ResourceType ofSuffix(URL url) {
+		String path = url.getPath().toLowerCase(Locale.ROOT);
+		for (ResourceType type : new ResourceType[] { IMAGE, TEXT_CSS, TEXT, APPLICATION }) {
+			if (type.isSupportSuffix(path))
+				return type;
+		}
+		return null;
+	}
+
+	/**
+	 * get the resource type by the content type of response
+	 * @param contentType String
+	 * @return ResourceType, {@link #APPLICATION} for unknown content type
+	 */
+	public static ResourceType ofContentType(String contentType) {
+		String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+		if (type.startsWith("image")) {
+			return IMAGE;
+		} else if (type.startsWith("text/css")) {
+			return TEXT_CSS;
+		} else if (type.startsWith("text")) {
+			return TEXT;
+		}
+		return APPLICATION;
+	}
+
 	private final static Map<ResourceType, List<String>> suffixMap = new ConcurrentHashMap<ResourceType, List<String>>();
 
 	static {
@@ -59,5 +92,8 @@ public enum ResourceType {
 				Collections.unmodifiableList(Arrays.asList(".tiff", ".png", ".gif", ".jpg", ".bmp", ".jpeg")));
 		suffixMap
 				.put(TEXT, Collections.unmodifiableList(Arrays.asList(".txt", ".htm", ".html", ".xml", ".js", ".css")));
+		suffixMap.put(TEXT_CSS, Collections.unmodifiableList(Arrays.asList(".css")));
+		suffixMap.put(APPLICATION,
+				Collections.unmodifiableList(Arrays.asList(".woff", ".woff2", ".ttf", ".eot", ".otf")));
 	}
 }
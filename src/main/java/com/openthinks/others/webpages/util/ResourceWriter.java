@@ -0,0 +1,278 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write the resource content to local file by NIO channels.<BR>
+ * The content is written to a temporary file beside the target first, then renamed to the target
+ * atomically, so a file at the target path is always complete; the target which already has the
+ * same content can be left untouched by {@link #writeIfChanged(InputStream, File)}, or linked to the
+ * content kept once in {@link ContentStore}.
+ * 
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class ResourceWriter {
+  public static final String TEMP_SUFFIX = ".part";
+  private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+  private ResourceWriter() {}
+
+  /**
+   * write the whole stream to the target file
+   * 
+   * @param ins {@link InputStream}, not closed by this method
+   * @param target the target file
+   * @return the written bytes
+   * @throws IOException when failed to read or write
+   */
+  public static long write(InputStream ins, File target) throws IOException {
+    return write(channelOf(ins), target);
+  }
+
+  /**
+   * write the whole stream to the target file, unless the existing target has the same content; the
+   * unchanged target keeps its modified time and is not replaced
+   * 
+   * @param ins {@link InputStream}, not closed by this method
+   * @param target the target file
+   * @return true if the target is written, false if it was unchanged
+   * @throws IOException when failed to read or write
+   */
+  public static boolean writeIfChanged(InputStream ins, File target) throws IOException {
+    return writeIfChanged(ins, target, null);
+  }
+
+  /**
+   * write the whole stream to the target file, unless it has the same content; the target is linked
+   * to the content in given store
+   * 
+   * @param ins {@link InputStream}, not closed by this method
+   * @param target the target file
+   * @param store {@link ContentStore}, null means write the target by itself
+   * @return true if the target is written, false if it was unchanged
+   * @throws IOException when failed to read or write
+   */
+  public static boolean writeIfChanged(InputStream ins, File target, ContentStore store)
+      throws IOException {
+    Path targetPath = target.toPath();
+    Path tempPath = tempPathOf(target);
+    try {
+      long size = writeTemp(channelOf(ins), target, tempPath);
+      if (store != null)
+        return store.commit(tempPath, targetPath);
+      if (sameContent(tempPath, size, targetPath))
+        return false;
+      moveAtomically(tempPath, targetPath);
+      return true;
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+
+  /**
+   * write the target file by the given action, unless the existing target has the same content
+   * 
+   * @param target the target file
+   * @param action write the content to the given stream, which is closed after the action
+   * @return true if the target is written, false if it was unchanged
+   * @throws IOException when failed to write
+   */
+  public static boolean writeIfChanged(File target, StreamAction action) throws IOException {
+    return writeIfChanged(target, null, action);
+  }
+
+  /**
+   * write the target file by the given action, unless it has the same content; the target is linked
+   * to the content in given store
+   * 
+   * @param target the target file
+   * @param store {@link ContentStore}, null means write the target by itself
+   * @param action write the content to the given stream, which is closed after the action
+   * @return true if the target is written, false if it was unchanged
+   * @throws IOException when failed to write
+   */
+  public static boolean writeIfChanged(File target, ContentStore store, StreamAction action)
+      throws IOException {
+    Path targetPath = target.toPath();
+    Path tempPath = tempPathOf(target);
+    try {
+      createParent(target);
+      try (OutputStream out = Channels.newOutputStream(FileChannel.open(tempPath,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING))) {
+        action.writeTo(out);
+      }
+      if (store != null)
+        return store.commit(tempPath, targetPath);
+      if (sameContent(tempPath, Files.size(tempPath), targetPath))
+        return false;
+      moveAtomically(tempPath, targetPath);
+      return true;
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+
+  private static ReadableByteChannel channelOf(InputStream ins) {
+    if (ins instanceof FileInputStream) {
+      // large response are stored in temporary file by HtmlUnit, transfer it directly
+      return ((FileInputStream) ins).getChannel();
+    }
+    return Channels.newChannel(ins);
+  }
+
+  /**
+   * write the whole channel to the target file
+   * 
+   * @param source {@link ReadableByteChannel}, not closed by this method
+   * @param target the target file
+   * @return the written bytes
+   * @throws IOException when failed to read or write
+   */
+  public static long write(ReadableByteChannel source, File target) throws IOException {
+    Path targetPath = target.toPath();
+    Path tempPath = tempPathOf(target);
+    boolean success = false;
+    try {
+      long size = writeTemp(source, target, tempPath);
+      moveAtomically(tempPath, targetPath);
+      success = true;
+      return size;
+    } finally {
+      if (!success)
+        Files.deleteIfExists(tempPath);
+    }
+  }
+
+  private static long writeTemp(ReadableByteChannel source, File target, Path tempPath)
+      throws IOException {
+    createParent(target);
+    try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      if (source instanceof FileChannel) {
+        return transfer((FileChannel) source, out);
+      }
+      return copy(source, out);
+    }
+  }
+
+  private static void createParent(File target) {
+    File parent = target.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists())
+      parent.mkdirs();
+  }
+
+  /**
+   * compare the written file with the existing one, the length first and then the bytes
+   */
+  private static boolean sameContent(Path written, long size, Path existing) throws IOException {
+    if (!Files.isRegularFile(existing) || Files.size(existing) != size)
+      return false;
+    byte[] left = new byte[COMPARE_BUFFER_SIZE];
+    byte[] right = new byte[COMPARE_BUFFER_SIZE];
+    try (InputStream a = Files.newInputStream(written);
+        InputStream b = Files.newInputStream(existing)) {
+      int count;
+      while ((count = readFully(a, left)) > 0) {
+        if (readFully(b, right) != count)
+          return false;
+        for (int i = 0; i < count; i++) {
+          if (left[i] != right[i])
+            return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int readFully(InputStream ins, byte[] buffer) throws IOException {
+    int count = 0;
+    while (count < buffer.length) {
+      int size = ins.read(buffer, count, buffer.length - count);
+      if (size == -1)
+        break;
+      count += size;
+    }
+    return count;
+  }
+
+  private static long transfer(FileChannel source, FileChannel out) throws IOException {
+    // the position of source is advanced by transferFrom
+    long remaining = source.size() - source.position();
+    long written = 0;
+    while (written < remaining) {
+      long count = out.transferFrom(source, written, remaining - written);
+      if (count <= 0)
+        break;
+      written += count;
+    }
+    return written;
+  }
+
+  private static long copy(ReadableByteChannel source, FileChannel out) throws IOException {
+    DirectBufferPool pool = DirectBufferPool.shared();
+    ByteBuffer buffer = pool.acquire();
+    long written = 0;
+    try {
+      while (source.read(buffer) != -1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          written += out.write(buffer);
+        }
+        buffer.clear();
+      }
+    } finally {
+      pool.release(buffer);
+    }
+    return written;
+  }
+
+  /**
+   * rename the source to target atomically if file system supports, replace the existing target
+   * 
+   * @param source source path
+   * @param target target path
+   * @throws IOException when failed to move
+   */
+  public static void moveAtomically(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * the temporary path beside the target, unique for each writing thread
+   * 
+   * @param target the target file
+   * @return {@link Path}
+   */
+  public static Path tempPathOf(File target) {
+    return new File(target.getAbsoluteFile().getParentFile(),
+        target.getName() + "." + Thread.currentThread().getId() + TEMP_SUFFIX).toPath();
+  }
+
+  /**
+   * The writing of content to a stream
+   */
+  @FunctionalInterface
+  public interface StreamAction {
+    void writeTo(OutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,438 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.utils.DateUtils;
+import org.w3c.dom.css.CSSStyleSheet;
+
+import com.gargoylesoftware.htmlunit.Cache;
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.UrlUtils;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.conf.WebPagesConfigure;
+import com.openthinks.others.webpages.util.HostConcurrencyLimiter.IOAction;
+
+/**
+ * The LRU cache of HTTP responses bounded by bytes, which is shared by all
+ * {@link com.gargoylesoftware.htmlunit.WebClient}s of the process through
+ * {@link #newClientCache()}; the responses evicted from memory are spilled to a local directory if
+ * configured.
+ * <p>
+ * A response is fresh by <code>Cache-Control: max-age</code> or <code>Expires</code>, or by 10% of
+ * its age since <code>Last-Modified</code>; the stale responses which have <code>ETag</code> or
+ * <code>Last-Modified</code> are revalidated by {@link #load(WebRequest, IOAction)}.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class ResponseCache {
+  private static final Map<String, ResponseCache> SHARED = new HashMap<>();
+  private static final Pattern MAX_AGE = Pattern.compile("(?:^|[,\\s])max-age\\s*=\\s*\"?(\\d+)");
+  private static final long MAX_HEURISTIC_LIFETIME = 24 * 60 * 60 * 1000L;
+  // the estimated memory of headers and map entry
+  private static final int ENTRY_OVERHEAD = 512;
+
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final ResponseSpill spill;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long bytes = 0;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder revalidated = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param maxBytes the max bytes of responses in memory
+   * @param spill the store of responses evicted from memory, null means drop them
+   */
+  ResponseCache(long maxBytes, ResponseSpill spill) {
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = maxBytes / 4;
+    this.spill = spill;
+  }
+
+  /**
+   * return the cache of the process for the configuration, the configurations with the same cache
+   * options share one cache
+   *
+   * @param config {@link WebPagesConfigure}
+   * @return Optional of {@link ResponseCache}, empty when the cache is disabled
+   */
+  public static synchronized Optional<ResponseCache> shared(WebPagesConfigure config) {
+    long maxBytes = config.getResponseCacheSize() * 1024L * 1024L;
+    if (maxBytes <= 0)
+      return Optional.empty();
+    Optional<File> spillDir = config.getResponseCacheSpillDir();
+    long spillBytes = config.getResponseCacheSpillSize() * 1024L * 1024L;
+    String key = maxBytes + "|" + spillDir.map(File::getAbsolutePath).orElse("") + "|" + spillBytes;
+    ResponseCache cache = SHARED.get(key);
+    if (cache == null) {
+      ResponseSpill spill = null;
+      if (spillDir.isPresent() && spillBytes > 0) {
+        try {
+          spill = new ResponseSpill(spillDir.get(), spillBytes);
+        } catch (IOException e) {
+          ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+        }
+      }
+      cache = new ResponseCache(maxBytes, spill);
+      SHARED.put(key, cache);
+    }
+    return Optional.of(cache);
+  }
+
+  /**
+   * return a {@link Cache} for one {@link com.gargoylesoftware.htmlunit.WebClient}, which stores
+   * into this cache; it is not cleared when the client is closed
+   *
+   * @return {@link Cache}
+   */
+  public Cache newClientCache() {
+    return new ClientCache(this);
+  }
+
+  /**
+   * load the response of GET request through the cache: the fresh response is returned without
+   * request, the stale one is revalidated by conditional request, otherwise the response loaded
+   * is cached if possible
+   *
+   * @param request {@link WebRequest}, the conditional headers are added to it for revalidation
+   * @param loader the action which sends the request
+   * @return {@link WebResponse}
+   * @throws IOException
+   */
+  public WebResponse load(WebRequest request, IOAction<WebResponse> loader) throws IOException {
+    if (request.getHttpMethod() != HttpMethod.GET)
+      return loader.run();
+    Entry entry = entryOf(keyOf(request.getUrl()));
+    if (entry != null && entry.body != null) {
+      if (entry.isFresh(System.currentTimeMillis())) {
+        hits.increment();
+        return entry.toResponse(request);
+      }
+      if (entry.etag != null)
+        request.setAdditionalHeader("If-None-Match", entry.etag);
+      if (entry.lastModified != null)
+        request.setAdditionalHeader("If-Modified-Since", entry.lastModified);
+    }
+    WebResponse response = loader.run();
+    if (entry != null && entry.body != null && response.getStatusCode() == 304) {
+      revalidated.increment();
+      boolean explicit = response.getResponseHeaderValue("Cache-Control") != null
+          || response.getResponseHeaderValue("Expires") != null;
+      entry.lifetime = explicit ? lifetimeOf(response) : entry.lifetime;
+      entry.storedAt = System.currentTimeMillis();
+      put(entry, true);
+      return entry.toResponse(request);
+    }
+    misses.increment();
+    store(response, null);
+    return response;
+  }
+
+  /**
+   * @return the ratio of the loads which are served by cache, including revalidated ones
+   */
+  public double getHitRatio() {
+    long served = hits.sum() + revalidated.sum();
+    long total = served + misses.sum();
+    return total == 0 ? 0 : served / (double) total;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getRevalidated() {
+    return revalidated.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * remove all entries in memory and spill directory
+   */
+  public void clear() {
+    synchronized (this) {
+      entries.clear();
+      bytes = 0;
+    }
+    if (spill != null)
+      spill.clear();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+        "entries=%d memory=%dKB hits=%d revalidated=%d misses=%d ratio=%.1f%%", getSize(),
+        getBytes() / 1024, getHits(), getRevalidated(), getMisses(), getHitRatio() * 100);
+  }
+
+  /**
+   * cache the response if it is a complete GET response, which is fresh or can be revalidated
+   *
+   * @param response {@link WebResponse}
+   * @param value the object parsed from response, like script
+   * @return true if cached
+   */
+  boolean store(WebResponse response, Object value) {
+    if (!isCacheable(response))
+      return false;
+    byte[] body;
+    try (InputStream in = response.getContentAsStream()) {
+      body = IOUtils.toByteArray(in);
+    } catch (IOException e) {
+      return false;
+    }
+    Entry entry = new Entry(keyOf(response.getWebRequest().getUrl()), body,
+        response.getStatusCode(), response.getStatusMessage(), response.getResponseHeaders());
+    entry.etag = response.getResponseHeaderValue("ETag");
+    entry.lastModified = response.getResponseHeaderValue("Last-Modified");
+    entry.lifetime = lifetimeOf(response);
+    entry.storedAt = System.currentTimeMillis();
+    entry.value = value;
+    put(entry, true);
+    return true;
+  }
+
+  void storeStyleSheet(String css, CSSStyleSheet styleSheet) {
+    Entry entry = new Entry(css, null, 0, null, Collections.emptyList());
+    entry.lifetime = Long.MAX_VALUE;
+    entry.value = styleSheet;
+    put(entry, true);
+  }
+
+  Entry freshEntryOf(WebRequest request) {
+    if (request.getHttpMethod() != HttpMethod.GET)
+      return null;
+    Entry entry = entryOf(keyOf(request.getUrl()));
+    return entry != null && entry.isFresh(System.currentTimeMillis()) ? entry : null;
+  }
+
+  /**
+   * the entry in memory, or the one taken back from spill; the spill file is read without holding
+   * the lock of cache
+   */
+  Entry entryOf(String key) {
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null || spill == null)
+        return entry;
+    }
+    Entry spilled = spill.take(key);
+    // the entry stored while reading the spill is newer
+    return spilled == null ? null : put(spilled, false);
+  }
+
+  protected boolean isCacheable(WebResponse response) {
+    if (response.getWebRequest().getHttpMethod() != HttpMethod.GET
+        || response.getStatusCode() != 200)
+      return false;
+    if (response.getContentLength() > maxEntryBytes)
+      return false;
+    String cacheControl = response.getResponseHeaderValue("Cache-Control");
+    if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-store"))
+      return false;
+    return lifetimeOf(response) > 0 || response.getResponseHeaderValue("ETag") != null
+        || response.getResponseHeaderValue("Last-Modified") != null;
+  }
+
+  /**
+   * the milliseconds which the response is fresh since it is received
+   *
+   * @param response {@link WebResponse}
+   * @return milliseconds, 0 means it must be revalidated
+   */
+  protected long lifetimeOf(WebResponse response) {
+    String cacheControl = response.getResponseHeaderValue("Cache-Control");
+    if (cacheControl != null) {
+      String directives = cacheControl.toLowerCase(Locale.ROOT);
+      if (directives.contains("no-cache") || directives.contains("no-store"))
+        return 0;
+      Matcher matcher = MAX_AGE.matcher(directives);
+      if (matcher.find()) {
+        try {
+          return Math.multiplyExact(Long.parseLong(matcher.group(1)), 1000L);
+        } catch (ArithmeticException | NumberFormatException e) {
+          return Long.MAX_VALUE;
+        }
+      }
+    }
+    Date date = dateOf(response, "Date");
+    long now = date == null ? System.currentTimeMillis() : date.getTime();
+    Date expires = dateOf(response, "Expires");
+    if (expires != null)
+      return Math.max(0, expires.getTime() - now);
+    Date lastModified = dateOf(response, "Last-Modified");
+    if (lastModified != null)
+      return Math.min(MAX_HEURISTIC_LIFETIME, Math.max(0, (now - lastModified.getTime()) / 10));
+    return 0;
+  }
+
+  private static Date dateOf(WebResponse response, String header) {
+    String value = response.getResponseHeaderValue(header);
+    return value == null ? null : DateUtils.parseDate(value);
+  }
+
+  /**
+   * put the entry into memory, the evicted entries are picked under the lock of cache and spilled
+   * after it is released
+   *
+   * @param entry {@link Entry}
+   * @param replace replace the entry of the same key, or keep it
+   * @return the entry in memory for the key
+   */
+  private Entry put(Entry entry, boolean replace) {
+    List<Entry> evicted = new ArrayList<>();
+    synchronized (this) {
+      if (!replace) {
+        Entry exist = entries.get(entry.key);
+        if (exist != null)
+          return exist;
+      }
+      Entry old = entries.put(entry.key, entry);
+      if (old != null)
+        bytes -= old.weight;
+      bytes += entry.weight;
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        Entry next = eldest.next();
+        if (next == entry)
+          break;
+        eldest.remove();
+        bytes -= next.weight;
+        if (spill != null && next.body != null)
+          evicted.add(next);
+      }
+    }
+    for (Entry spilled : evicted) {
+      spill.store(spilled);
+    }
+    return entry;
+  }
+
+  static String keyOf(URL url) {
+    return UrlUtils.normalize(url);
+  }
+
+  /**
+   * the cached response or style sheet
+   */
+  static final class Entry {
+    final String key;
+    final byte[] body;
+    final int statusCode;
+    final String statusMessage;
+    final List<NameValuePair> headers;
+    final long weight;
+    String etag;
+    String lastModified;
+    // refreshed by revalidation while others read them
+    volatile long storedAt;
+    volatile long lifetime;
+    // the parsed object, only kept in memory
+    Object value;
+
+    Entry(String key, byte[] body, int statusCode, String statusMessage,
+        List<NameValuePair> headers) {
+      this.key = key;
+      this.body = body;
+      this.statusCode = statusCode;
+      this.statusMessage = statusMessage;
+      this.headers = new ArrayList<>(headers);
+      this.weight = key.length() * 4L + (body == null ? 0 : body.length) + ENTRY_OVERHEAD;
+    }
+
+    boolean isFresh(long now) {
+      return lifetime == Long.MAX_VALUE || now - storedAt < lifetime;
+    }
+
+    WebResponse toResponse(WebRequest request) {
+      WebResponseData data = new WebResponseData(body, statusCode, statusMessage, headers);
+      return new WebResponse(data, request, 0);
+    }
+  }
+
+  /**
+   * the view of shared cache for one {@link com.gargoylesoftware.htmlunit.WebClient}, the client
+   * clears its cache when closed
+   */
+  private static final class ClientCache extends Cache {
+    private static final long serialVersionUID = 1L;
+    private final transient ResponseCache shared;
+
+    ClientCache(ResponseCache shared) {
+      this.shared = shared;
+    }
+
+    @Override
+    public boolean cacheIfPossible(WebRequest request, WebResponse response, Object toCache) {
+      return shared.store(response, toCache);
+    }
+
+    @Override
+    public void cache(String css, CSSStyleSheet styleSheet) {
+      shared.storeStyleSheet(css, styleSheet);
+    }
+
+    @Override
+    public WebResponse getCachedResponse(WebRequest request) {
+      Entry entry = shared.freshEntryOf(request);
+      return entry == null || entry.body == null ? null : entry.toResponse(request);
+    }
+
+    @Override
+    public Object getCachedObject(WebRequest request) {
+      Entry entry = shared.freshEntryOf(request);
+      return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public CSSStyleSheet getCachedStyleSheet(String css) {
+      Entry entry = shared.entryOf(css);
+      return entry == null ? null : (CSSStyleSheet) entry.value;
+    }
+
+    @Override
+    public int getSize() {
+      return shared.getSize();
+    }
+
+    @Override
+    public void clear() {
+      // the shared entries outlive the client
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.openthinks.libs.utilities.CommonUtilities;
+import com.openthinks.libs.utilities.logger.ProcessLogger;
+import com.openthinks.others.webpages.util.ResponseCache.Entry;
+
+/**
+ * The local directory which keeps the responses evicted from memory by {@link ResponseCache}, one
+ * file for each response; it is bounded by bytes and drops the least recently spilled files.<BR>
+ * Only the index of files is guarded by lock, the files are written, read and deleted outside of
+ * it; each spill of a response has its own file, so they never collide.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+final class ResponseSpill {
+  private static final String SUFFIX = ".entry";
+
+  private final File dir;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Spilled> files = new LinkedHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private long bytes = 0;
+
+  ResponseSpill(File dir, long maxBytes) throws IOException {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    Files.createDirectories(dir.toPath());
+    // the entries of previous process are not indexed
+    deleteFiles();
+  }
+
+  /**
+   * write the entry into its file, the failure only loses the entry
+   *
+   * @param entry {@link Entry}
+   */
+  void store(Entry entry) {
+    File file = new File(dir, fileNameOf(entry.key, sequence.incrementAndGet()));
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeUTF(entry.key);
+      out.writeInt(entry.statusCode);
+      out.writeUTF(nonNull(entry.statusMessage));
+      out.writeInt(entry.headers.size());
+      for (NameValuePair header : entry.headers) {
+        out.writeUTF(nonNull(header.getName()));
+        out.writeUTF(nonNull(header.getValue()));
+      }
+      out.writeUTF(nonNull(entry.etag));
+      out.writeUTF(nonNull(entry.lastModified));
+      out.writeLong(entry.storedAt);
+      out.writeLong(entry.lifetime);
+      out.writeInt(entry.body.length);
+      out.write(entry.body);
+    } catch (IOException | RuntimeException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      file.delete();
+      return;
+    }
+    Spilled spilled = new Spilled(file, file.length());
+    List<File> evicted = new ArrayList<>();
+    synchronized (this) {
+      Spilled old = files.remove(entry.key);
+      if (old != null) {
+        bytes -= old.length;
+        evicted.add(old.file);
+      }
+      files.put(entry.key, spilled);
+      bytes += spilled.length;
+      Iterator<Spilled> eldest = files.values().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        Spilled next = eldest.next();
+        eldest.remove();
+        bytes -= next.length;
+        evicted.add(next.file);
+      }
+    }
+    for (File evictedFile : evicted) {
+      evictedFile.delete();
+    }
+  }
+
+  /**
+   * read and remove the entry
+   *
+   * @param key the key of entry
+   * @return {@link Entry} or null if not spilled
+   */
+  Entry take(String key) {
+    File file;
+    synchronized (this) {
+      Spilled spilled = files.remove(key);
+      if (spilled == null)
+        return null;
+      bytes -= spilled.length;
+      file = spilled.file;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (!key.equals(in.readUTF()))
+        return null;
+      int statusCode = in.readInt();
+      String statusMessage = in.readUTF();
+      int headerCount = in.readInt();
+      List<NameValuePair> headers = new ArrayList<>(headerCount);
+      for (int i = 0; i < headerCount; i++) {
+        headers.add(new NameValuePair(in.readUTF(), in.readUTF()));
+      }
+      String etag = in.readUTF();
+      String lastModified = in.readUTF();
+      long storedAt = in.readLong();
+      long lifetime = in.readLong();
+      byte[] body = new byte[in.readInt()];
+      in.readFully(body);
+      Entry entry = new Entry(key, body, statusCode, statusMessage, headers);
+      entry.etag = etag.isEmpty() ? null : etag;
+      entry.lastModified = lastModified.isEmpty() ? null : lastModified;
+      entry.storedAt = storedAt;
+      entry.lifetime = lifetime;
+      return entry;
+    } catch (IOException e) {
+      ProcessLogger.warn(CommonUtilities.getCurrentInvokerMethod(), e.getMessage());
+      return null;
+    } finally {
+      file.delete();
+    }
+  }
+
+  void clear() {
+    synchronized (this) {
+      files.clear();
+      bytes = 0;
+    }
+    deleteFiles();
+  }
+
+  private void deleteFiles() {
+    File[] spilled = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+    if (spilled != null) {
+      for (File file : spilled) {
+        file.delete();
+      }
+    }
+  }
+
+  private static String fileNameOf(String key, long sequence) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder(digest.length * 2 + 24);
+      for (byte b : digest) {
+        name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return name.append('-').append(sequence).append(SUFFIX).toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String nonNull(String value) {
+    return value == null ? "" : value;
+  }
+
+  /**
+   * the file of one spilled response with its length when written
+   */
+  private static final class Spilled {
+    final File file;
+    final long length;
+
+    Spilled(File file, long length) {
+      this.file = file;
+      this.length = length;
+    }
+  }
+}
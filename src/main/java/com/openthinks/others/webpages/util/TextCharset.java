@@ -0,0 +1,153 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.util.EncodingSniffer;
+
+/**
+ * The charset of text resources, told by the byte order mark, the <code>Content-Type</code> header
+ * or the <code>@charset</code> rule of stylesheet.<BR>
+ * The kept pages are declared as UTF-8. A script or other text resource is always kept byte by byte,
+ * and its element tells the charset if it is another one; a stylesheet is kept byte by byte when it is
+ * UTF-8 or carries its own declaration, and is decoded and encoded again only when it must be
+ * rewritten or can not tell its charset by itself.
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public final class TextCharset {
+  private static final byte[] CSS_CHARSET_RULE = "@charset \"".getBytes(StandardCharsets.US_ASCII);
+  private static final int CSS_CHARSET_MAX = 64;
+
+  private TextCharset() {}
+
+  /**
+   * the charset told by the byte order mark at the head of content
+   *
+   * @param content the bytes of content
+   * @return {@link Charset} or null if no byte order mark
+   */
+  public static Charset ofBom(byte[] content) {
+    return ofBom(content, content.length);
+  }
+
+  /**
+   * the charset told by the byte order mark at the head of stream, the stream is reset to its head
+   *
+   * @param in {@link BufferedInputStream}
+   * @return {@link Charset} or null if no byte order mark
+   * @throws IOException when failed to read
+   */
+  public static Charset ofBom(BufferedInputStream in) throws IOException {
+    byte[] head = new byte[3];
+    in.mark(head.length);
+    int length = 0;
+    int read = 0;
+    while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+      length += read;
+    }
+    in.reset();
+    return ofBom(head, length);
+  }
+
+  private static Charset ofBom(byte[] head, int length) {
+    if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB
+        && (head[2] & 0xFF) == 0xBF)
+      return StandardCharsets.UTF_8;
+    if (length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF)
+      return StandardCharsets.UTF_16BE;
+    if (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE)
+      return StandardCharsets.UTF_16LE;
+    return null;
+  }
+
+  /**
+   * the length of byte order mark of given charset
+   *
+   * @param bom the charset returned by {@link #ofBom(byte[])}
+   * @return the length in bytes, 0 if no byte order mark
+   */
+  public static int bomLength(Charset bom) {
+    if (bom == null)
+      return 0;
+    return StandardCharsets.UTF_8.equals(bom) ? 3 : 2;
+  }
+
+  /**
+   * the charset declared by the <code>Content-Type</code> header of response
+   *
+   * @param wrp {@link WebResponse}
+   * @return {@link Charset} or null if not declared or not supported
+   */
+  public static Charset ofHeaders(WebResponse wrp) {
+    return EncodingSniffer.sniffEncodingFromHttpHeaders(wrp.getResponseHeaders());
+  }
+
+  /**
+   * the charset declared by the <code>@charset</code> rule, which must be the very beginning of
+   * stylesheet
+   *
+   * @param content the bytes of stylesheet
+   * @param offset the offset of stylesheet after the byte order mark
+   * @return {@link Charset} or null if not declared or not supported
+   */
+  public static Charset ofCssRule(byte[] content, int offset) {
+    int start = offset + CSS_CHARSET_RULE.length;
+    if (content.length <= start)
+      return null;
+    for (int i = 0; i < CSS_CHARSET_RULE.length; i++) {
+      if (content[offset + i] != CSS_CHARSET_RULE[i])
+        return null;
+    }
+    int end = Math.min(content.length - 1, start + CSS_CHARSET_MAX);
+    for (int i = start; i < end; i++) {
+      if (content[i] == '"') {
+        if (content[i + 1] != ';')
+          return null;
+        return toCharset(new String(content, start, i - start, StandardCharsets.US_ASCII));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * replace the <code>@charset</code> rule at the beginning of stylesheet by the given charset
+   *
+   * @param styleCtx the text of stylesheet
+   * @param charset the charset the stylesheet will be kept in
+   * @return the stylesheet declared in given charset, or the same one if it has no such rule
+   */
+  public static String redeclareCssRule(String styleCtx, Charset charset) {
+    String rule = new String(CSS_CHARSET_RULE, StandardCharsets.US_ASCII);
+    if (!styleCtx.startsWith(rule))
+      return styleCtx;
+    int end = styleCtx.indexOf("\";", rule.length());
+    if (end == -1 || end > rule.length() + CSS_CHARSET_MAX)
+      return styleCtx;
+    return rule + charset.name() + styleCtx.substring(end);
+  }
+
+  /**
+   * whether the text in given charset can be read as UTF-8 without decoding
+   *
+   * @param charset {@link Charset}
+   * @return true for UTF-8 and US-ASCII
+   */
+  public static boolean isUtf8Compatible(Charset charset) {
+    return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+  }
+
+  /**
+   * @param name the name or label of charset
+   * @return {@link Charset} or null if not supported
+   */
+  public static Charset toCharset(String name) {
+    if (name == null || name.trim().isEmpty())
+      return null;
+    return EncodingSniffer.toCharset(name.trim());
+  }
+}
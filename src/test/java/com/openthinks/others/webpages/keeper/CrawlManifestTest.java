@@ -0,0 +1,171 @@
+package com.openthinks.others.webpages.keeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+
+import com.openthinks.others.webpages.util.ResourceInfo;
+import com.openthinks.others.webpages.util.ResourceType;
+
+import junit.framework.TestCase;
+
+/**
+ * The records of {@link CrawlManifest} read back by next run, and the kept records which
+ * {@link ResourceIndex} hands to revalidation
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CrawlManifestTest extends TestCase {
+  private static final String LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+  private File bookDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    bookDir = Files.createTempDirectory("crawl-manifest").toFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtils.deleteQuietly(bookDir);
+  }
+
+  private ResourceInfo kept(String url, String name, String content, String etag,
+      String lastModified) throws IOException {
+    File file = new File(bookDir, name);
+    FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    ResourceInfo info = new ResourceInfo();
+    info.setResourceType(ResourceType.TEXT_JAVASCRIPT);
+    info.setResourceURL(new URL(url));
+    info.setResourceName(name);
+    info.setResourcePath(file.getAbsolutePath());
+    info.setEtag(etag);
+    info.setLastModified(lastModified);
+    return info;
+  }
+
+  private void keepAll(ResourceInfo... infos) throws IOException {
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      for (ResourceInfo info : infos) {
+        manifest.done(info);
+      }
+    }
+  }
+
+  public void testRoundTrip() throws IOException {
+    ResourceInfo script =
+        kept("http://book.test/a.js", "js/a.js", "var a;", "\"v1\"", LAST_MODIFIED);
+    script.setCharset("GBK");
+    keepAll(script);
+    String path = script.getResourcePath();
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      CrawlManifest.Record record = manifest.lookup(script.getResourceURL(), path);
+      assertNotNull(record);
+      assertEquals("http://book.test/a.js", record.getUrl());
+      assertEquals(new File(path).getCanonicalPath(),
+          new File(record.getPath()).getCanonicalPath());
+      assertEquals(6, record.getLength());
+      assertEquals("\"v1\"", record.getEtag());
+      assertEquals(LAST_MODIFIED, record.getLastModified());
+      assertEquals(CrawlManifest.sha256Of(new File(path)), record.getSha256());
+      assertEquals("GBK", record.getCharset());
+      assertTrue(manifest.isKept(script.getResourceURL(), path));
+    }
+  }
+
+  public void testRoundTripWithoutValidators() throws IOException {
+    ResourceInfo image = kept("http://book.test/a.png", "images/a.png", "png", null, null);
+    keepAll(image);
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      CrawlManifest.Record record =
+          manifest.lookup(image.getResourceURL(), image.getResourcePath());
+      assertNotNull(record);
+      assertNull(record.getEtag());
+      assertNull(record.getLastModified());
+      assertNull(record.getCharset());
+      assertTrue(record.isIntact());
+    }
+  }
+
+  public void testRecordWithoutCharsetColumn() throws IOException {
+    File script = new File(bookDir, "js/a.js");
+    FileUtils.writeStringToFile(script, "var a;", StandardCharsets.UTF_8);
+    String line = "DONE\tTEXT_JAVASCRIPT\thttp://book.test/a.js\tjs/a.js\t6\t\"v1\"\t\tabc";
+    FileUtils.writeLines(new File(bookDir, CrawlManifest.MANIFEST_FILE), "UTF-8",
+        Collections.singletonList(line));
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      CrawlManifest.Record record =
+          manifest.lookup(new URL("http://book.test/a.js"), script.getPath());
+      assertNotNull(record);
+      assertEquals("\"v1\"", record.getEtag());
+      assertNull(record.getLastModified());
+      assertNull(record.getCharset());
+    }
+  }
+
+  public void testFailedOverridesDone() throws IOException {
+    ResourceInfo script = kept("http://book.test/a.js", "js/a.js", "var a;", "\"v1\"", null);
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      manifest.done(script);
+      manifest.failed(script);
+    }
+    String path = script.getResourcePath();
+    try (CrawlManifest manifest = CrawlManifest.open(bookDir)) {
+      assertNull(manifest.lookup(script.getResourceURL(), path));
+      assertFalse(manifest.isKept(script.getResourceURL(), path));
+      // the file it does not record is left as it is
+      assertTrue(new File(path).isFile());
+    }
+  }
+
+  public void testKeptRecordOfIntactResource() throws IOException {
+    ResourceInfo script = kept("http://book.test/a.js", "js/a.js", "var a;", "\"v1\"", null);
+    keepAll(script);
+    ResourceIndex index = new ResourceIndex(CrawlManifest.open(bookDir), true);
+    try {
+      CrawlManifest.Record record =
+          index.keptRecordOf(script.getResourceURL(), script.getResourcePath());
+      assertNotNull(record);
+      assertEquals("\"v1\"", record.getEtag());
+      // claimed again to be revalidated
+      assertTrue(index.claim(script.getResourceURL(), script.getResourcePath()).isOwner());
+    } finally {
+      index.clear();
+    }
+  }
+
+  public void testKeptRecordOfChangedResourceIsNull() throws IOException {
+    ResourceInfo script = kept("http://book.test/a.js", "js/a.js", "var a;", "\"v1\"", null);
+    keepAll(script);
+    File file = new File(script.getResourcePath());
+    FileUtils.writeStringToFile(file, "var changed;", StandardCharsets.UTF_8);
+    ResourceIndex index = new ResourceIndex(CrawlManifest.open(bookDir), true);
+    try {
+      assertNull(index.keptRecordOf(script.getResourceURL(), file.getPath()));
+    } finally {
+      index.clear();
+    }
+  }
+
+  public void testKeptRecordOfIsNullWithoutIncremental() throws IOException {
+    ResourceInfo script = kept("http://book.test/a.js", "js/a.js", "var a;", "\"v1\"", null);
+    script.setCharset("GBK");
+    keepAll(script);
+    ResourceIndex index = new ResourceIndex(CrawlManifest.open(bookDir), false);
+    try {
+      assertNull(index.keptRecordOf(script.getResourceURL(), script.getResourcePath()));
+      // kept by previous run, nobody downloads it again but its charset is known
+      ResourceIndex.Entry entry = index.claim(script.getResourceURL(), script.getResourcePath());
+      assertFalse(entry.isOwner());
+      assertEquals(ResourceIndex.State.DONE, entry.getState());
+      assertEquals("GBK", entry.getCharset());
+    } finally {
+      index.clear();
+    }
+  }
+}
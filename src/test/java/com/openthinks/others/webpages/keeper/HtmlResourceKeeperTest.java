@@ -0,0 +1,97 @@
+package com.openthinks.others.webpages.keeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.html.HTMLParser;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.openthinks.others.webpages.agent.HtmlJsResourceAgent;
+import com.openthinks.others.webpages.transfer.HtmlPageTransfer;
+
+import junit.framework.TestCase;
+
+/**
+ * The requests of resources sent by {@link HtmlResourceKeeper} for a page which was revalidated by
+ * its own validators, the validators of page are never sent for its resources
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class HtmlResourceKeeperTest extends TestCase {
+  private static final String PAGE_ETAG = "\"page\"";
+  private static final String PAGE_LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+  private WebClient webClient;
+  private File keepDir;
+  private HtmlPage page;
+  private URL scriptUrl;
+
+  @Override
+  protected void setUp() throws Exception {
+    webClient = new WebClient();
+    webClient.getOptions().setJavaScriptEnabled(false);
+    keepDir = Files.createTempDirectory("resource-keeper").toFile();
+    WebRequest pageRequest = new WebRequest(new URL("http://book.test/p.html"));
+    pageRequest.setAdditionalHeader("If-None-Match", PAGE_ETAG);
+    pageRequest.setAdditionalHeader("If-Modified-Since", PAGE_LAST_MODIFIED);
+    byte[] html = "<html><head><script src=\"a.js\"></script></head><body>x</body></html>"
+        .getBytes(StandardCharsets.UTF_8);
+    WebResponseData data = new WebResponseData(html, 200, "OK",
+        Arrays.asList(new NameValuePair("Content-Type", "text/html; charset=UTF-8"),
+            new NameValuePair("ETag", PAGE_ETAG),
+            new NameValuePair("Last-Modified", PAGE_LAST_MODIFIED)));
+    page = HTMLParser.parseHtml(new WebResponse(data, pageRequest, 0),
+        webClient.getCurrentWindow());
+    scriptUrl = new URL("http://book.test/a.js");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    webClient.close();
+    FileUtils.deleteQuietly(keepDir);
+  }
+
+  private HtmlResourceKeeper scriptKeeper(HtmlResourceKeeper keeper) {
+    return keeper.initial(scriptUrl, () -> new HtmlJsResourceAgent(keeper));
+  }
+
+  private HtmlResourceKeeper scriptKeeper() {
+    HtmlPageTransfer transfer = HtmlPageTransfer.create(page, keepDir);
+    return scriptKeeper(new HtmlResourceKeeper(transfer, page.getDocumentElement(), keepDir));
+  }
+
+  public void testRequestDoesNotCarryPageValidators() throws IOException {
+    WebRequest request = scriptKeeper().newWebRequest(scriptUrl, false);
+    assertEquals(scriptUrl, request.getUrl());
+    assertNull(request.getAdditionalHeaders().get("If-None-Match"));
+    assertNull(request.getAdditionalHeaders().get("If-Modified-Since"));
+    assertEquals("http://book.test/p.html", request.getAdditionalHeaders().get("Referer"));
+  }
+
+  public void testRevalidationCarriesKeptValidators() throws IOException {
+    HtmlResourceKeeper keeper = scriptKeeper();
+    keeper.keptRecord = new CrawlManifest.Record();
+    keeper.keptRecord.etag = "\"script\"";
+    WebRequest request = keeper.newWebRequest(scriptUrl, true);
+    assertEquals("\"script\"", request.getAdditionalHeaders().get("If-None-Match"));
+    // the kept record has no Last-Modified, the one of page is not sent instead
+    assertNull(request.getAdditionalHeaders().get("If-Modified-Since"));
+  }
+
+  public void testInitialDoesNotTakePageValidators() {
+    HtmlPageTransfer transfer = HtmlPageTransfer.create(page, keepDir);
+    HtmlResourceKeeper keeper = scriptKeeper(new HtmlResourceKeeper(transfer, page, keepDir));
+    assertNull(keeper.resourceInfo().getEtag());
+    assertNull(keeper.resourceInfo().getLastModified());
+  }
+}
@@ -0,0 +1,133 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * The references found and rewritten by {@link CssReferenceTokenizer}, each reference is rewritten
+ * to <code>local/</code> plus itself and recorded with <code>@</code> if it is imported
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class CssReferenceTokenizerTest extends TestCase {
+  private final List<String> references = new ArrayList<>();
+
+  private String rewrite(String css) throws IOException {
+    return new CssReferenceTokenizer((reference, imported) -> {
+      references.add(imported ? "@" + reference : reference);
+      return "local/" + reference;
+    }).rewrite(css).toString();
+  }
+
+  public void testUnquotedUrl() throws IOException {
+    assertEquals("a{background:url(local/img/a.png)}", rewrite("a{background:url(img/a.png)}"));
+    assertEquals("[img/a.png]", references.toString());
+  }
+
+  public void testUnquotedUrlWithWhitespace() throws IOException {
+    assertEquals("a{background:url( local/a.png )}", rewrite("a{background:url( a.png )}"));
+    assertEquals("[a.png]", references.toString());
+  }
+
+  public void testQuotedUrl() throws IOException {
+    assertEquals("a{b:url(\"local/a.png\");c:url('local/b.png')}",
+        rewrite("a{b:url(\"a.png\");c:url('b.png')}"));
+    assertEquals("[a.png, b.png]", references.toString());
+  }
+
+  public void testUpperCaseUrl() throws IOException {
+    assertEquals("a{b:URL(local/a.png)}", rewrite("a{b:URL(a.png)}"));
+  }
+
+  public void testUrlInsideIdentifierIsNotReference() throws IOException {
+    String css = "a{b:myurl(a.png);c:-x-url(b.png)}";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testQuotedReplacementOfUnquotedUrl() throws IOException {
+    String out = new CssReferenceTokenizer((reference, imported) -> "my file.png").rewrite(
+        "a{b:url(a.png)}").toString();
+    assertEquals("a{b:url(\"my file.png\")}", out);
+  }
+
+  public void testNullReplacementKeepsReference() throws IOException {
+    String css = "a{b:url(a.png)}@import 'c.css';";
+    assertEquals(css, new CssReferenceTokenizer((reference, imported) -> null).rewrite(css)
+        .toString());
+  }
+
+  public void testImportString() throws IOException {
+    assertEquals("@import \"local/base.css\";@import 'local/print.css' print;",
+        rewrite("@import \"base.css\";@import 'print.css' print;"));
+    assertEquals("[@base.css, @print.css]", references.toString());
+  }
+
+  public void testImportUrl() throws IOException {
+    assertEquals("@import url(local/typography.css) screen;",
+        rewrite("@import url(typography.css) screen;"));
+    assertEquals("[@typography.css]", references.toString());
+  }
+
+  public void testCommentIsNotReference() throws IOException {
+    String css = "/* url(commented.png) @import 'no.css'; */a{b:url(a.png)}";
+    assertEquals("/* url(commented.png) @import 'no.css'; */a{b:url(local/a.png)}", rewrite(css));
+    assertEquals("[a.png]", references.toString());
+  }
+
+  public void testUnclosedCommentIsNotReference() throws IOException {
+    String css = "a{b:c} /* url(a.png)";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testStringIsNotReference() throws IOException {
+    String css = "a:before{content:\"url(not-a-reference.png)\"}";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testEscapedQuoteInUrl() throws IOException {
+    assertEquals("a{b:url(\"local/a\\\"b.png\")}", rewrite("a{b:url(\"a\\\"b.png\")}"));
+    assertEquals("[a\\\"b.png]", references.toString());
+  }
+
+  public void testEscapedQuoteInString() throws IOException {
+    String css = "a{content:\"\\\" url(a.png)\"}";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testEscapedUrlName() throws IOException {
+    String css = "a{b:\\url(a.png)}";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testUnclosedUrl() throws IOException {
+    String css = "a{b:url(a.png;c:d}";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testUnclosedUrlAtEnd() throws IOException {
+    String css = "a{b:url(a.png";
+    assertEquals(css, rewrite(css));
+    assertTrue(references.isEmpty());
+  }
+
+  public void testUnclosedQuoteInUrl() throws IOException {
+    String css = "a{b:url(\"a.png)}\nc{d:url(b.png)}";
+    assertEquals("a{b:url(\"a.png)}\nc{d:url(local/b.png)}", rewrite(css));
+    assertEquals("[b.png]", references.toString());
+  }
+
+  public void testUnclosedUrlDoesNotHideFollowingReference() throws IOException {
+    assertEquals("a{b:url(a.png c{d:url(local/b.png)}", rewrite("a{b:url(a.png c{d:url(b.png)}"));
+    assertEquals("[b.png]", references.toString());
+  }
+}
@@ -0,0 +1,236 @@
+package com.openthinks.others.webpages.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.client.utils.DateUtils;
+
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+import junit.framework.TestCase;
+
+/**
+ * The freshness, revalidation and eviction of {@link ResponseCache}
+ *
+ * @author dailey.dai@openthinks.com
+ *
+ */
+public class ResponseCacheTest extends TestCase {
+  private static final long HOUR = 60 * 60 * 1000L;
+  private final List<WebRequest> requested = new ArrayList<>();
+  private File spillDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    spillDir = Files.createTempDirectory("response-cache").toFile();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtils.deleteQuietly(spillDir);
+  }
+
+  private static WebResponse response(String url, int status, String body, String... headers)
+      throws IOException {
+    List<NameValuePair> pairs = new ArrayList<>();
+    for (int i = 0; i + 1 < headers.length; i += 2) {
+      pairs.add(new NameValuePair(headers[i], headers[i + 1]));
+    }
+    byte[] content = body.getBytes(StandardCharsets.UTF_8);
+    return new WebResponse(new WebResponseData(content, status, status == 304 ? "Not Modified" : "OK",
+        pairs), new WebRequest(new URL(url)), 0);
+  }
+
+  private static String body(int size) {
+    char[] chars = new char[size];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+
+  private WebResponse load(ResponseCache cache, String url, WebResponse origin) throws IOException {
+    WebRequest request = new WebRequest(new URL(url));
+    return cache.load(request, () -> {
+      requested.add(request);
+      return origin;
+    });
+  }
+
+  public void testMaxAgeIsServedWithoutRequest() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.css";
+    load(cache, url, response(url, 200, "a{}", "Cache-Control", "public, max-age=60"));
+    WebResponse cached = load(cache, url, null);
+    assertEquals(1, requested.size());
+    assertEquals("a{}", cached.getContentAsString());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  public void testMaxAgeLifetime() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.css";
+    assertEquals(60 * 1000L, cache.lifetimeOf(response(url, 200, "", "Cache-Control", "max-age=60")));
+    assertEquals(0, cache.lifetimeOf(response(url, 200, "", "Cache-Control", "no-cache, max-age=60")));
+    // max-age wins over Expires
+    assertEquals(60 * 1000L, cache.lifetimeOf(response(url, 200, "", "Cache-Control", "max-age=60",
+        "Expires", DateUtils.formatDate(new Date(0)))));
+  }
+
+  public void testExpiresLifetime() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    Date now = new Date();
+    WebResponse response = response("http://cache.test/a.css", 200, "", "Date",
+        DateUtils.formatDate(now), "Expires", DateUtils.formatDate(new Date(now.getTime() + HOUR)));
+    assertEquals(HOUR, cache.lifetimeOf(response));
+  }
+
+  public void testNoStoreIsNotCached() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.css";
+    WebResponse origin = response(url, 200, "a{}", "Cache-Control", "no-store, max-age=60",
+        "ETag", "\"v1\"");
+    load(cache, url, origin);
+    load(cache, url, origin);
+    assertEquals(2, requested.size());
+    assertEquals(0, cache.getSize());
+    assertNull(requested.get(1).getAdditionalHeaders().get("If-None-Match"));
+  }
+
+  public void testNoLifetimeAndNoValidatorIsNotCached() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.css";
+    assertFalse(cache.store(response(url, 200, "a{}"), null));
+    assertFalse(cache.store(response(url, 404, "", "Cache-Control", "max-age=60"), null));
+    assertEquals(0, cache.getSize());
+  }
+
+  public void testLastModifiedHeuristic() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    Date now = new Date();
+    String url = "http://cache.test/a.png";
+    // 10% of the age since last modified
+    WebResponse hourOld = response(url, 200, "", "Date", DateUtils.formatDate(now),
+        "Last-Modified", DateUtils.formatDate(new Date(now.getTime() - 10 * HOUR)));
+    assertEquals(HOUR, cache.lifetimeOf(hourOld), 1000L);
+    // but at most one day
+    WebResponse yearOld = response(url, 200, "", "Date", DateUtils.formatDate(now),
+        "Last-Modified", DateUtils.formatDate(new Date(now.getTime() - 365 * 24 * HOUR)));
+    assertEquals(24 * HOUR, cache.lifetimeOf(yearOld));
+  }
+
+  public void testStaleIsRevalidatedAndRefreshedBy304() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.js";
+    String lastModified = DateUtils.formatDate(new Date(0));
+    load(cache, url, response(url, 200, "var a;", "Cache-Control", "max-age=0", "ETag", "\"v1\"",
+        "Last-Modified", lastModified));
+    WebResponse revalidated =
+        load(cache, url, response(url, 304, "", "Cache-Control", "max-age=60", "ETag", "\"v1\""));
+    assertEquals(2, requested.size());
+    WebRequest conditional = requested.get(1);
+    assertEquals("\"v1\"", conditional.getAdditionalHeaders().get("If-None-Match"));
+    assertEquals(lastModified, conditional.getAdditionalHeaders().get("If-Modified-Since"));
+    assertEquals(200, revalidated.getStatusCode());
+    assertEquals("var a;", revalidated.getContentAsString());
+    assertEquals(1, cache.getRevalidated());
+    // fresh for the max-age of 304
+    load(cache, url, null);
+    assertEquals(2, requested.size());
+    assertEquals(1, cache.getHits());
+  }
+
+  public void testStaleIsReplacedByNewResponse() throws IOException {
+    ResponseCache cache = new ResponseCache(1024 * 1024, null);
+    String url = "http://cache.test/a.js";
+    load(cache, url, response(url, 200, "var a;", "Cache-Control", "max-age=0", "ETag", "\"v1\""));
+    WebResponse changed = load(cache, url, response(url, 200, "var b;", "Cache-Control",
+        "max-age=0", "ETag", "\"v2\""));
+    assertEquals("var b;", changed.getContentAsString());
+    load(cache, url, response(url, 304, ""));
+    assertEquals("\"v2\"", requested.get(2).getAdditionalHeaders().get("If-None-Match"));
+  }
+
+  public void testLeastRecentlyUsedIsEvictedToSpill() throws IOException {
+    // each entry weighs its body, 4 bytes per key char and 512 bytes of overhead
+    ResponseCache cache = new ResponseCache(4096, new ResponseSpill(spillDir, 1024 * 1024));
+    String a = "http://cache.test/a.png";
+    String b = "http://cache.test/b.png";
+    String c = "http://cache.test/c.png";
+    cache.store(response(a, 200, body(1000), "Cache-Control", "max-age=60"), null);
+    cache.store(response(b, 200, body(1000), "Cache-Control", "max-age=60"), null);
+    // a is used recently, so b is the eldest
+    load(cache, a, null);
+    cache.store(response(c, 200, body(1000), "Cache-Control", "max-age=60"), null);
+    assertEquals(2, cache.getSize());
+    assertTrue(cache.getBytes() <= 4096);
+    assertEquals(1, spillDir.listFiles().length);
+
+    // b is taken back from spill and a is evicted in turn
+    WebResponse spilled = load(cache, b, null);
+    assertTrue(requested.isEmpty());
+    assertEquals(body(1000), spilled.getContentAsString());
+    assertEquals(2, cache.getSize());
+    load(cache, c, null);
+    load(cache, a, null);
+    assertTrue(requested.isEmpty());
+  }
+
+  public void testEvictedIsDroppedWithoutSpill() throws IOException {
+    ResponseCache cache = new ResponseCache(4096, null);
+    String a = "http://cache.test/a.png";
+    cache.store(response(a, 200, body(1000), "Cache-Control", "max-age=60"), null);
+    cache.store(response("http://cache.test/b.png", 200, body(1000), "Cache-Control", "max-age=60"),
+        null);
+    cache.store(response("http://cache.test/c.png", 200, body(1000), "Cache-Control", "max-age=60"),
+        null);
+    assertEquals(2, cache.getSize());
+    load(cache, a, response(a, 200, body(1000)));
+    assertEquals(1, requested.size());
+  }
+
+  public void testConcurrentLoadsThroughSpill() throws Exception {
+    ResponseCache cache = new ResponseCache(4096, new ResponseSpill(spillDir, 1024 * 1024));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> loads = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t;
+        loads.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            String url = "http://cache.test/" + (i * 7 + seed) % 20 + ".png";
+            WebResponse origin = response(url, 200, url + body(900), "Cache-Control", "max-age=60");
+            WebResponse loaded = cache.load(new WebRequest(new URL(url)), () -> origin);
+            assertEquals(url + body(900), loaded.getContentAsString());
+          }
+          return null;
+        }));
+      }
+      for (Future<?> load : loads) {
+        load.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getBytes() <= 4096);
+  }
+
+  public void testLargeResponseIsNotCached() throws IOException {
+    ResponseCache cache = new ResponseCache(4096, null);
+    assertFalse(cache.store(response("http://cache.test/large.png", 200, body(1025), "Cache-Control",
+        "max-age=60"), null));
+  }
+}